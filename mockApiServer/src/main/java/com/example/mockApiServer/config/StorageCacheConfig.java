@@ -0,0 +1,58 @@
+package com.example.mockApiServer.config;
+
+import com.example.mockApiServer.service.storage.CachingStorageService;
+import com.example.mockApiServer.service.storage.GitHubStorageService;
+import com.example.mockApiServer.service.storage.NexusStorageService;
+import com.example.mockApiServer.service.storage.StorageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Puts a local disk cache in front of the remote storage backends
+ */
+@Configuration
+@ConditionalOnProperty(name = "storage.cache.enabled", havingValue = "true", matchIfMissing = true)
+@Conditional(StorageCacheConfig.RemoteStorageType.class)
+public class StorageCacheConfig {
+    
+    @Bean
+    @Primary
+    public StorageService cachingStorageService(StorageConfig storageConfig,
+                                                ObjectProvider<GitHubStorageService> gitHubStorage,
+                                                ObjectProvider<NexusStorageService> nexusStorage,
+                                                MeterRegistry meterRegistry) throws IOException {
+        StorageService remote = storageConfig.getType() == StorageConfig.StorageType.GITHUB
+                ? gitHubStorage.getObject()
+                : nexusStorage.getObject();
+        StorageConfig.CacheConfig cache = storageConfig.getCache();
+        return new CachingStorageService(remote, Paths.get(cache.getDirectory()),
+                cache.getMaxSize().toBytes(), meterRegistry);
+    }
+    
+    /**
+     * Matches when storage.type names a single remote backend
+     */
+    static class RemoteStorageType extends AnyNestedCondition {
+        
+        RemoteStorageType() {
+            super(ConfigurationPhase.PARSE_CONFIGURATION);
+        }
+        
+        @ConditionalOnProperty(name = "storage.type", havingValue = "GITHUB")
+        static class GitHub {
+        }
+        
+        @ConditionalOnProperty(name = "storage.type", havingValue = "NEXUS")
+        static class Nexus {
+        }
+    }
+}
@@ -4,6 +4,11 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 @ConfigurationProperties(prefix = "storage")
@@ -14,9 +19,11 @@ public class StorageConfig {
     private GitHubConfig github = new GitHubConfig();
     private NexusConfig nexus = new NexusConfig();
     private LocalConfig local = new LocalConfig();
+    private CacheConfig cache = new CacheConfig();
+    private ReplicationConfig replication = new ReplicationConfig();
 
     public enum StorageType {
-        GITHUB, NEXUS, LOCAL
+        GITHUB, NEXUS, LOCAL, REPLICATED
     }
 
     @Getter
@@ -27,6 +34,7 @@ public class StorageConfig {
         private String token;
         private String baseDir = "snapshots";
         private String username;
+        private String apiUrl = "https://api.github.com";
     }
 
     @Getter
@@ -38,6 +46,9 @@ public class StorageConfig {
         private String password;
         private String groupId = "com.example";
         private String artifactId = "wiremock-snapshots";
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration readTimeout = Duration.ofSeconds(300);
+        private int searchPageLimit = 1000;
     }
 
     @Getter
@@ -45,4 +56,21 @@ public class StorageConfig {
     public static class LocalConfig {
         private String directory = "./snapshots";
     }
+
+    @Getter
+    @Setter
+    public static class CacheConfig {
+        private boolean enabled = true;
+        private String directory = "./snapshot-cache";
+        private DataSize maxSize = DataSize.ofMegabytes(512);
+    }
+
+    @Getter
+    @Setter
+    public static class ReplicationConfig {
+        private List<StorageType> replicas = new ArrayList<>();
+        private int maxAttempts = 5;
+        private Duration retryDelay = Duration.ofSeconds(10);
+        private Duration failoverPeriod = Duration.ofSeconds(30);
+    }
 }
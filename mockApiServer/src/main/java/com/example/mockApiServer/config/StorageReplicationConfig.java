@@ -0,0 +1,46 @@
+package com.example.mockApiServer.config;
+
+import com.example.mockApiServer.service.storage.GitHubStorageService;
+import com.example.mockApiServer.service.storage.LocalStorageService;
+import com.example.mockApiServer.service.storage.NexusStorageService;
+import com.example.mockApiServer.service.storage.ReplicatedStorageService;
+import com.example.mockApiServer.service.storage.StorageService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes snapshots to local storage and replicates them to the backends listed in
+ * storage.replication.replicas. The replicas are not wrapped in the snapshot cache: the local primary
+ * already holds every snapshot and, being the fastest replica, serves the reads, so a cache would
+ * only duplicate it on disk and hide a slow or failing remote from the read ordering.
+ */
+@Configuration
+@ConditionalOnProperty(name = "storage.type", havingValue = "REPLICATED")
+public class StorageReplicationConfig {
+    
+    @Bean
+    public StorageService replicatedStorageService(StorageConfig storageConfig, ObjectMapper objectMapper,
+                                                   MeterRegistry meterRegistry) throws IOException {
+        StorageConfig.ReplicationConfig replication = storageConfig.getReplication();
+        Map<String, StorageService> remotes = new LinkedHashMap<>();
+        for (StorageConfig.StorageType type : replication.getReplicas()) {
+            switch (type) {
+                case GITHUB -> remotes.put("github", new GitHubStorageService(storageConfig, objectMapper, meterRegistry));
+                case NEXUS -> remotes.put("nexus", new NexusStorageService(storageConfig, objectMapper));
+                default -> throw new IllegalStateException("Replicas must be GITHUB or NEXUS, not " + type);
+            }
+        }
+        if (remotes.isEmpty()) {
+            throw new IllegalStateException("storage.replication.replicas is required for REPLICATED storage type");
+        }
+        return new ReplicatedStorageService(new LocalStorageService(storageConfig), remotes, replication.getMaxAttempts(),
+                replication.getRetryDelay(), replication.getFailoverPeriod(), meterRegistry);
+    }
+}
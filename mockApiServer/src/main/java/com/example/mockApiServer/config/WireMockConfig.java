@@ -1,35 +1,238 @@
 package com.example.mockApiServer.config;
 
+import com.example.mockApiServer.wiremock.BoundedRequestJournalStore;
+import com.example.mockApiServer.wiremock.JettyThreadPoolFactory;
+import com.example.mockApiServer.wiremock.JournalRecorder;
+import com.example.mockApiServer.wiremock.MappedBodyStore;
+import com.example.mockApiServer.wiremock.MockServerStores;
+import com.example.mockApiServer.wiremock.PersistOnlyMappingsSource;
+import com.example.mockApiServer.wiremock.ProxyClientFactory;
+import com.example.mockApiServer.wiremock.RecordedStubBuilder;
+import com.example.mockApiServer.wiremock.RecordingFilter;
+import com.example.mockApiServer.wiremock.SnapshotSetRouter;
+import com.example.mockApiServer.wiremock.StreamingRecorder;
+import com.example.mockApiServer.wiremock.StubMetricsListener;
+import com.example.mockApiServer.wiremock.SwappableStubMappingStore;
+import com.example.mockApiServer.wiremock.TrafficRecorder;
 import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.common.SingleRootFileSource;
+import com.github.tomakehurst.wiremock.common.filemaker.FilenameMaker;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.extension.Extension;
+import com.github.tomakehurst.wiremock.store.files.FileSourceBlobStore;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.core.WireMockApp.FILES_ROOT;
+import static com.github.tomakehurst.wiremock.core.WireMockApp.MAPPINGS_ROOT;
+
 @Configuration
 public class WireMockConfig {
     
+    private static final String ROOT_DIRECTORY = "./wiremock";
+    
     @Value("${wiremock.server.port:8089}")
     private int wireMockPort;
     
+    @Value("${wiremock.server.container-threads:200}")
+    private int containerThreads;
+    
+    @Value("${wiremock.server.min-threads:8}")
+    private int minThreads;
+    
+    @Value("${wiremock.server.acceptors:-1}")
+    private int acceptors;
+    
+    @Value("${wiremock.server.accept-queue-size:-1}")
+    private int acceptQueueSize;
+    
+    @Value("${wiremock.server.max-queued-requests:0}")
+    private int maxQueuedRequests;
+    
+    @Value("${wiremock.server.virtual-threads:false}")
+    private boolean virtualThreads;
+    
     @Value("${wiremock.mode:STUB}")
     private String mode;
     
     @Value("${wiremock.proxy-url:http://localhost:8081}")
     private String proxyUrl;
     
+    @Value("${wiremock.proxy.max-connections:200}")
+    private int proxyMaxConnections;
+    
+    @Value("${wiremock.proxy.connect-timeout:5s}")
+    private Duration proxyConnectTimeout;
+    
+    @Value("${wiremock.proxy.read-timeout:300s}")
+    private Duration proxyReadTimeout;
+    
+    @Value("${wiremock.proxy.keep-alive:30s}")
+    private Duration proxyKeepAlive;
+    
+    @Value("${wiremock.proxy.http2:false}")
+    private boolean proxyHttp2;
+    
+    @Value("${wiremock.proxy.max-concurrent:0}")
+    private int proxyMaxConcurrent;
+    
+    @Value("${wiremock.proxy.queue-timeout:30s}")
+    private Duration proxyQueueTimeout;
+    
+    @Value("${wiremock.recording.mode:JOURNAL}")
+    private String recordingMode;
+    
+    @Value("${wiremock.recording.log-file:./recording/exchanges.jsonl}")
+    private String recordingLogFile;
+    
+    @Value("${wiremock.recording.allow.hosts:}")
+    private List<String> recordAllowHosts;
+    
+    @Value("${wiremock.recording.allow.methods:}")
+    private List<String> recordAllowMethods;
+    
+    @Value("${wiremock.recording.allow.path-prefixes:}")
+    private List<String> recordAllowPathPrefixes;
+    
+    @Value("${wiremock.recording.deny.hosts:}")
+    private List<String> recordDenyHosts;
+    
+    @Value("${wiremock.recording.deny.methods:}")
+    private List<String> recordDenyMethods;
+    
+    @Value("${wiremock.recording.deny.path-prefixes:}")
+    private List<String> recordDenyPathPrefixes;
+    
+    @Value("${wiremock.journal.policy:RING}")
+    private BoundedRequestJournalStore.Policy journalPolicy;
+    
+    @Value("${wiremock.journal.max-entries:10000}")
+    private int journalMaxEntries;
+    
+    @Value("${wiremock.journal.sample-rate:0.01}")
+    private double journalSampleRate;
+    
+    @Value("${wiremock.journal.max-logged-body-bytes:4096}")
+    private int journalMaxLoggedBodyBytes;
+    
+    @Value("${wiremock.metrics.enabled:true}")
+    private boolean metricsEnabled;
+    
+    @Value("${wiremock.metrics.max-stubs:100}")
+    private int metricsMaxStubs;
+    
+    @Value("${wiremock.body-store.threshold-bytes:65536}")
+    private long bodyStoreThresholdBytes;
+    
+    @Value("${wiremock.matching.indexed:true}")
+    private boolean indexedMatching;
+    
+    @Value("${wiremock.snapshot-sets.header:X-Snapshot-Set}")
+    private String snapshotSetHeader;
+    
+    @Value("${wiremock.snapshot-sets.path-prefix:/sets}")
+    private String snapshotSetPathPrefix;
+    
+    @Value("${wiremock.snapshot-sets.host-routing:true}")
+    private boolean snapshotSetHostRouting;
+    
+    @Bean
+    public MappedBodyStore responseBodyStore() {
+        FileSource filesRoot = new SingleRootFileSource(ROOT_DIRECTORY).child(FILES_ROOT);
+        return new MappedBodyStore(new FileSourceBlobStore(filesRoot), Paths.get(filesRoot.getPath()), bodyStoreThresholdBytes);
+    }
+    
+    @Bean
+    public SwappableStubMappingStore stubMappingStore(MappedBodyStore responseBodyStore) {
+        return new SwappableStubMappingStore(responseBodyStore, indexedMatching, snapshotSetHeader);
+    }
+    
+    @Bean
+    public RecordingFilter recordingFilter(MeterRegistry meterRegistry) {
+        return new RecordingFilter(recordAllowHosts, recordAllowMethods, recordAllowPathPrefixes,
+                recordDenyHosts, recordDenyMethods, recordDenyPathPrefixes, meterRegistry);
+    }
+    
+    @Bean
+    public BoundedRequestJournalStore requestJournalStore(MeterRegistry meterRegistry) {
+        return new BoundedRequestJournalStore(journalPolicy, journalMaxEntries, journalSampleRate,
+                journalMaxLoggedBodyBytes, meterRegistry);
+    }
+    
+    @Bean
+    public TrafficRecorder trafficRecorder(MappedBodyStore responseBodyStore, RecordingFilter recordingFilter,
+                                           BoundedRequestJournalStore requestJournalStore) {
+        RecordedStubBuilder stubBuilder = new RecordedStubBuilder(responseBodyStore);
+        if ("STREAMING".equalsIgnoreCase(recordingMode)) {
+            return new StreamingRecorder(Paths.get(recordingLogFile), stubBuilder, recordingFilter);
+        }
+        return new JournalRecorder(requestJournalStore, recordingFilter, stubBuilder);
+    }
+    
+    @Bean
+    public ProxyClientFactory proxyClientFactory(MeterRegistry meterRegistry) {
+        return new ProxyClientFactory(new ProxyClientFactory.Settings(proxyMaxConnections, proxyConnectTimeout,
+                proxyReadTimeout, proxyKeepAlive, proxyHttp2, proxyMaxConcurrent, proxyQueueTimeout), meterRegistry);
+    }
+    
+    @Bean
+    public MockServerStores wireMockStores(SwappableStubMappingStore stubMappingStore, MappedBodyStore responseBodyStore,
+                                           BoundedRequestJournalStore requestJournalStore) {
+        return new MockServerStores(new SingleRootFileSource(ROOT_DIRECTORY), stubMappingStore, responseBodyStore,
+                requestJournalStore);
+    }
+    
+    @Bean
+    public PersistOnlyMappingsSource mappingsSource() {
+        // Mapping files are loaded in parallel by the application, so WireMock only persists them
+        FileSource mappingsRoot = new SingleRootFileSource(ROOT_DIRECTORY).child(MAPPINGS_ROOT);
+        return new PersistOnlyMappingsSource(mappingsRoot, new FilenameMaker());
+    }
+    
     @Bean
-    public WireMockServer wireMockServer() {
-        WireMockServer server = new WireMockServer(WireMockConfiguration.options()
+    public WireMockServer wireMockServer(MockServerStores wireMockStores, SwappableStubMappingStore stubMappingStore,
+                                         PersistOnlyMappingsSource mappingsSource, TrafficRecorder trafficRecorder,
+                                         ProxyClientFactory proxyClientFactory, MeterRegistry meterRegistry) throws IOException {
+        WireMockConfiguration options = WireMockConfiguration.options()
                 .port(wireMockPort)
-                .usingFilesUnderDirectory("./wiremock"));
+                .usingFilesUnderDirectory(ROOT_DIRECTORY)
+                .mappingSource(mappingsSource)
+                .withStores(wireMockStores)
+                .containerThreads(containerThreads)
+                .threadPoolFactory(new JettyThreadPoolFactory(minThreads, maxQueuedRequests, virtualThreads))
+                .httpClientFactory(proxyClientFactory);
+        // Negative values keep Jetty's defaults
+        if (acceptors >= 0) {
+            options.jettyAcceptors(acceptors);
+        }
+        if (acceptQueueSize >= 0) {
+            options.jettyAcceptQueueSize(acceptQueueSize);
+        }
+        List<Extension> extensions = new ArrayList<>();
+        extensions.add(new SnapshotSetRouter(stubMappingStore, snapshotSetPathPrefix, snapshotSetHostRouting));
+        if (trafficRecorder instanceof StreamingRecorder streamingRecorder) {
+            extensions.add(streamingRecorder);
+        }
+        if (metricsEnabled) {
+            extensions.add(new StubMetricsListener(meterRegistry, metricsMaxStubs));
+        }
+        options.extensions(extensions.toArray(new Extension[0]));
+        WireMockServer server = new WireMockServer(options);
         
         server.start();
         
         // Configure based on mode
         if ("PROXY".equalsIgnoreCase(mode)) {
-            // Proxy mode: forward all requests to target and record
-            server.startRecording(proxyUrl);
+            // Proxy mode: WireMockController starts recording once it has loaded the mappings directory
             System.out.println("✅ WireMock started in PROXY mode, recording to: " + proxyUrl);
         } else {
             // Stub mode: serve recorded responses
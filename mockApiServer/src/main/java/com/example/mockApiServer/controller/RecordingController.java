@@ -1,6 +1,11 @@
 package com.example.mockApiServer.controller;
 
+import com.example.mockApiServer.service.MappingImportService;
 import com.example.mockApiServer.service.storage.StorageService;
+import com.example.mockApiServer.wiremock.RecordedStubBuilder;
+import com.example.mockApiServer.wiremock.RecordingFilter;
+import com.example.mockApiServer.wiremock.StreamingRecorder;
+import com.example.mockApiServer.wiremock.TrafficRecorder;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -24,11 +30,21 @@ public class RecordingController {
     @Autowired
     private WireMockServer wireMockServer;
     
+    @Autowired
+    private MappingImportService mappingImportService;
+    
+    @Autowired
+    private TrafficRecorder trafficRecorder;
+    
+    @Autowired
+    private RecordingFilter recordingFilter;
+    
     @Value("${wiremock.proxy-url:http://localhost:8081}")
     private String proxyUrl;
     
-    private boolean isRecording = false;
-
+    @Value("${wiremock.recording.mode:JOURNAL}")
+    private String recordingMode;
+    
     /**
      * Start recording HTTP traffic
      */
@@ -36,10 +52,9 @@ public class RecordingController {
     public ResponseEntity<Map<String, String>> startRecording() {
         Map<String, String> response = new HashMap<>();
         
-        if (!isRecording) {
+        if (!trafficRecorder.isRecording()) {
             try {
-                wireMockServer.startRecording(proxyUrl);
-                isRecording = true;
+                trafficRecorder.start(wireMockServer, proxyUrl);
                 log.info("Recording started, proxying to: {}", proxyUrl);
                 
                 response.put("status", "recording");
@@ -67,14 +82,18 @@ public class RecordingController {
             @RequestParam(required = false) String snapshotName) {
         Map<String, String> response = new HashMap<>();
         
-        if (isRecording) {
+        // A streaming recording interrupted by a restart leaves its exchange log to finalize
+        if (trafficRecorder.isRecording() || trafficRecorder.hasPendingExchanges()) {
             try {
-                wireMockServer.stopRecording();
-                isRecording = false;
-                log.info("Recording stopped");
+                RecordedStubBuilder.Result result = trafficRecorder.stop(wireMockServer);
+                log.info("Recording stopped ({} exchanges, {} mappings, dedup ratio {})",
+                        result.exchanges(), result.mappingsCreated(), String.format(Locale.ROOT, "%.2f", result.dedupRatio()));
                 
                 response.put("status", "stopped");
                 response.put("message", "Recording stopped successfully");
+                response.put("exchangesRecorded", String.valueOf(result.exchanges()));
+                response.put("mappingsCreated", String.valueOf(result.mappingsCreated()));
+                response.put("dedupRatio", String.format(Locale.ROOT, "%.2f", result.dedupRatio()));
                 response.put("mappingsRecorded", String.valueOf(wireMockServer.getStubMappings().size()));
                 
                 // Optionally create snapshot
@@ -103,7 +122,12 @@ public class RecordingController {
     @GetMapping("/status")
     public ResponseEntity<Map<String, Object>> getRecordingStatus() {
         Map<String, Object> response = new HashMap<>();
-        response.put("isRecording", isRecording);
+        response.put("isRecording", trafficRecorder.isRecording());
+        response.put("recordingMode", recordingMode.toUpperCase());
+        response.put("exchangesSkippedTotal", recordingFilter.getSkippedCount());
+        if (trafficRecorder instanceof StreamingRecorder streamingRecorder) {
+            response.put("exchangesRecorded", streamingRecorder.getExchangesRecorded());
+        }
         response.put("proxyUrl", proxyUrl);
         response.put("mappingsCount", wireMockServer.getStubMappings().size());
         response.put("wireMockPort", wireMockServer.port());
@@ -120,7 +144,7 @@ public class RecordingController {
         Map<String, String> response = new HashMap<>();
         
         try {
-            wireMockServer.resetAll();
+            mappingImportService.resetLive();
             log.info("All WireMock mappings reset");
             
             response.put("status", "success");
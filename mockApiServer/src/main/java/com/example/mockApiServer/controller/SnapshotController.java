@@ -1,17 +1,21 @@
 package com.example.mockApiServer.controller;
 
+import com.example.mockApiServer.service.MappingImportService;
+import com.example.mockApiServer.service.snapshot.CompressionSettings;
+import com.example.mockApiServer.service.snapshot.ContentAddressedSnapshotService;
+import com.example.mockApiServer.service.snapshot.ExtractResult;
+import com.example.mockApiServer.service.snapshot.SnapshotArchiveService;
+import com.example.mockApiServer.service.snapshot.SnapshotSetService;
 import com.example.mockApiServer.service.storage.StorageService;
-import com.github.tomakehurst.wiremock.WireMockServer;
-import com.github.tomakehurst.wiremock.stubbing.StubMapping;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.*;
-import java.nio.file.Files;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
@@ -19,10 +23,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/snapshots")
@@ -34,25 +35,75 @@ public class SnapshotController {
     private StorageService storageService;
     
     @Autowired
-    private WireMockServer wireMockServer;
+    private MappingImportService mappingImportService;
+    
+    @Autowired
+    private SnapshotArchiveService snapshotArchiveService;
+    
+    @Autowired
+    private ContentAddressedSnapshotService contentAddressedSnapshotService;
+    
+    @Autowired
+    private SnapshotSetService snapshotSetService;
+    
+    @Value("${wiremock.restore.mode:RESET}")
+    private RestoreMode defaultRestoreMode;
+    
+    @Value("${wiremock.snapshot.format:ARCHIVE}")
+    private SnapshotFormat defaultSnapshotFormat;
+    
+    /**
+     * How a restored snapshot replaces the live stub set
+     */
+    public enum RestoreMode {
+        /** Reset WireMock, then import; requests may briefly see an empty or partial stub set */
+        RESET,
+        /** Build the new stub set off to the side and switch to it in one step */
+        ATOMIC,
+        /** Re-register only mappings whose files changed; needs a snapshot with a manifest */
+        INCREMENTAL
+    }
+    
+    /**
+     * How a snapshot is written to the storage backend
+     */
+    public enum SnapshotFormat {
+        /** A self-contained zip of every mapping and file */
+        ARCHIVE,
+        /** A manifest of content hashes; file contents are stored once as shared blobs */
+        CONTENT_ADDRESSED
+    }
     
     /**
      * Create a new snapshot from current WireMock state
      */
     @PostMapping("/{name}")
-    public ResponseEntity<Map<String, String>> createSnapshot(@PathVariable String name) {
+    public ResponseEntity<Map<String, String>> createSnapshot(@PathVariable String name,
+                                                              @RequestParam(required = false) SnapshotFormat format,
+                                                              @RequestParam(required = false) CompressionSettings.Codec codec,
+                                                              @RequestParam(required = false) Integer level) {
+        SnapshotFormat snapshotFormat = format != null ? format : defaultSnapshotFormat;
         try {
-            log.info("Creating snapshot: {}", name);
-            
-            // Create a zip file containing mappings and files
-            byte[] snapshotData = createSnapshotZip();
-            
-            // Save to storage backend
-            storageService.saveSnapshot(name, snapshotData);
+            log.info("Creating snapshot: {} ({})", name, snapshotFormat);
             
             Map<String, String> response = new HashMap<>();
+            if (snapshotFormat == SnapshotFormat.CONTENT_ADDRESSED) {
+                ContentAddressedSnapshotService.CreateResult result = contentAddressedSnapshotService.createSnapshot(name);
+                response.put("files", String.valueOf(result.files()));
+                response.put("blobs", String.valueOf(result.blobs()));
+                response.put("uploadedBlobs", String.valueOf(result.uploadedBlobs()));
+                response.put("uploadedBytes", String.valueOf(result.uploadedBytes()));
+            } else {
+                CompressionSettings compression = snapshotArchiveService.getDefaultCompression().withOverrides(codec, level);
+                // Stream a zip of mappings and files straight into the storage backend
+                storageService.saveSnapshot(name, out -> snapshotArchiveService.writeArchive(out, compression));
+                response.put("codec", compression.codec().name());
+                response.put("level", String.valueOf(compression.level()));
+            }
+            
             response.put("message", "Snapshot created successfully");
             response.put("name", name);
+            response.put("format", snapshotFormat.name());
             response.put("timestamp", LocalDateTime.now().toString());
             
             return ResponseEntity.ok(response);
@@ -71,31 +122,59 @@ public class SnapshotController {
     public ResponseEntity<Map<String, String>> createAutoSnapshot() {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
         String name = "snapshot-" + timestamp;
-        return createSnapshot(name);
+        return createSnapshot(name, null, null, null);
     }
     
     /**
      * Restore a snapshot to WireMock
      */
     @PostMapping("/{name}/restore")
-    public ResponseEntity<Map<String, String>> restoreSnapshot(@PathVariable String name) {
+    public ResponseEntity<Map<String, String>> restoreSnapshot(@PathVariable String name,
+                                                               @RequestParam(required = false) RestoreMode mode) {
+        RestoreMode restoreMode = mode != null ? mode : defaultRestoreMode;
         try {
-            log.info("Restoring snapshot: {}", name);
-            
-            // Load snapshot data from storage
-            byte[] snapshotData = storageService.loadSnapshot(name);
+            log.info("Restoring snapshot: {} ({})", name, restoreMode);
             
-            // Extract and restore to WireMock
-            restoreSnapshotFromZip(snapshotData);
+            // Extract while downloading so the archive never sits fully in memory
+            long unzipStart = System.nanoTime();
+            ExtractResult extracted;
+            try (InputStream snapshotStream = storageService.openSnapshot(name)) {
+                extracted = snapshotArchiveService.extractArchive(snapshotStream);
+            }
+            long unzipMillis = (System.nanoTime() - unzipStart) / 1_000_000;
             
             // Reload WireMock server to pick up new mappings
-            wireMockServer.resetAll();
-            reloadWireMockMappings();
+            Path mappingsDir = Paths.get("./wiremock/mappings");
+            if (restoreMode == RestoreMode.INCREMENTAL && !extracted.incremental()) {
+                log.warn("Snapshot {} has no manifest, falling back to a full reset", name);
+                restoreMode = RestoreMode.RESET;
+            }
+            MappingImportService.ImportResult result;
+            if (restoreMode == RestoreMode.ATOMIC) {
+                result = mappingImportService.swapFrom(mappingsDir);
+            } else if (restoreMode == RestoreMode.INCREMENTAL) {
+                result = mappingImportService.applyChanges(extracted.changedMappingFiles(), extracted.replacedMappings());
+            } else {
+                // Resetting reloads the mappings directory the snapshot was extracted to
+                result = mappingImportService.resetLive();
+            }
             
             Map<String, String> response = new HashMap<>();
             response.put("message", "Snapshot restored successfully");
             response.put("name", name);
-            response.put("mappings", String.valueOf(wireMockServer.getStubMappings().size()));
+            response.put("mode", restoreMode.name());
+            response.put("mappings", String.valueOf(result.mappings()));
+            response.put("failedMappings", String.valueOf(result.failed()));
+            response.put("filesWritten", String.valueOf(extracted.filesWritten()));
+            response.put("filesUnchanged", String.valueOf(extracted.filesUnchanged()));
+            response.put("filesDeleted", String.valueOf(extracted.filesDeleted()));
+            response.put("blobsFetched", String.valueOf(extracted.blobsFetched()));
+            response.put("unzipMillis", String.valueOf(unzipMillis));
+            response.put("parseMillis", String.valueOf(result.parseMillis()));
+            response.put("registerMillis", String.valueOf(result.registerMillis()));
+            if (restoreMode == RestoreMode.ATOMIC) {
+                response.put("swapMicros", String.valueOf(result.swapMicros()));
+            }
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -106,13 +185,68 @@ public class SnapshotController {
         }
     }
     
+    /**
+     * Serve a snapshot as a named set next to the live stubs, without restoring it
+     */
+    @PostMapping("/{name}/load")
+    public ResponseEntity<Map<String, String>> loadSnapshotSet(@PathVariable String name,
+                                                               @RequestParam(required = false) String set) {
+        String setName = set != null && !set.isBlank() ? set : name;
+        try {
+            log.info("Loading snapshot {} as set {}", name, setName);
+            SnapshotSetService.LoadResult result = snapshotSetService.load(setName, name);
+            
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Snapshot set loaded successfully");
+            response.put("name", name);
+            response.put("set", setName);
+            response.put("mappings", String.valueOf(result.mappings()));
+            response.put("bodyFiles", String.valueOf(result.bodyFiles()));
+            response.put("reusedBodyFiles", String.valueOf(result.reusedBodyFiles()));
+            response.put("sharedBodies", String.valueOf(result.sharedBodies()));
+            response.put("loadMillis", String.valueOf(result.loadMillis()));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Failed to load snapshot {} as set {}", name, setName, e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to load snapshot set: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    /**
+     * List loaded snapshot sets with their number of mappings
+     */
+    @GetMapping("/sets")
+    public ResponseEntity<Map<String, Long>> listSnapshotSets() {
+        return ResponseEntity.ok(snapshotSetService.list());
+    }
+    
+    /**
+     * Stop serving a snapshot set
+     */
+    @DeleteMapping("/sets/{set}")
+    public ResponseEntity<Map<String, String>> unloadSnapshotSet(@PathVariable String set) {
+        Map<String, String> response = new HashMap<>();
+        if (snapshotSetService.unload(set)) {
+            response.put("message", "Snapshot set unloaded successfully");
+            response.put("set", set);
+            return ResponseEntity.ok(response);
+        }
+        response.put("error", "Snapshot set not found");
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+    
     /**
      * List all available snapshots
      */
     @GetMapping
     public ResponseEntity<List<String>> listSnapshots() {
         try {
-            List<String> snapshots = storageService.listSnapshots();
+            // Content-addressed blobs share the namespace on some backends
+            List<String> snapshots = storageService.listSnapshots().stream()
+                    .filter(snapshot -> !snapshot.startsWith(StorageService.BLOB_NAME_PREFIX))
+                    .collect(Collectors.toList());
             return ResponseEntity.ok(snapshots);
         } catch (Exception e) {
             log.error("Failed to list snapshots", e);
@@ -160,103 +294,4 @@ public class SnapshotController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("exists", false));
         }
     }
-    
-    /**
-     * Create a zip file from current WireMock mappings and files
-     */
-    private byte[] createSnapshotZip() throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        
-        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
-            // Add mappings
-            Path mappingsDir = Paths.get("./wiremock/mappings");
-            if (Files.exists(mappingsDir)) {
-                addDirectoryToZip(zos, mappingsDir, "mappings");
-            }
-            
-            // Add files
-            Path filesDir = Paths.get("./wiremock/__files");
-            if (Files.exists(filesDir)) {
-                addDirectoryToZip(zos, filesDir, "__files");
-            }
-        }
-        
-        return baos.toByteArray();
-    }
-    
-    /**
-     * Add a directory to zip recursively
-     */
-    private void addDirectoryToZip(ZipOutputStream zos, Path sourceDir, String zipPath) throws IOException {
-        try (Stream<Path> paths = Files.walk(sourceDir)) {
-            paths.filter(Files::isRegularFile)
-                 .forEach(path -> {
-                     try {
-                         String relativePath = sourceDir.relativize(path).toString();
-                         String entryName = zipPath + "/" + relativePath.replace("\\", "/");
-                         
-                         ZipEntry zipEntry = new ZipEntry(entryName);
-                         zos.putNextEntry(zipEntry);
-                         Files.copy(path, zos);
-                         zos.closeEntry();
-                     } catch (IOException e) {
-                         log.error("Failed to add file to zip: {}", path, e);
-                     }
-                 });
-        }
-    }
-    
-    /**
-     * Restore snapshot from zip data
-     */
-    private void restoreSnapshotFromZip(byte[] zipData) throws IOException {
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(zipData);
-             ZipInputStream zis = new ZipInputStream(bais)) {
-            
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                if (entry.isDirectory()) {
-                    continue;
-                }
-                
-                Path outputPath = Paths.get("./wiremock/" + entry.getName());
-                Files.createDirectories(outputPath.getParent());
-                
-                try (FileOutputStream fos = new FileOutputStream(outputPath.toFile())) {
-                    byte[] buffer = new byte[8192];
-                    int len;
-                    while ((len = zis.read(buffer)) > 0) {
-                        fos.write(buffer, 0, len);
-                    }
-                }
-                
-                zis.closeEntry();
-            }
-        }
-    }
-    
-    /**
-     * Reload WireMock mappings from disk
-     */
-    private void reloadWireMockMappings() throws IOException {
-        Path mappingsDir = Paths.get("./wiremock/mappings");
-        if (!Files.exists(mappingsDir)) {
-            return;
-        }
-        
-        try (Stream<Path> paths = Files.list(mappingsDir)) {
-            paths.filter(Files::isRegularFile)
-                 .filter(path -> path.toString().endsWith(".json"))
-                 .forEach(path -> {
-                     try {
-                         String mappingJson = Files.readString(path);
-                         StubMapping mapping = StubMapping.buildFrom(mappingJson);
-                         wireMockServer.addStubMapping(mapping);
-                         log.debug("Loaded mapping from: {}", path.getFileName());
-                     } catch (Exception e) {
-                         log.error("Failed to load mapping from: {}", path, e);
-                     }
-                 });
-        }
-    }
 }
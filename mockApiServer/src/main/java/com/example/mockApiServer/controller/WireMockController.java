@@ -1,7 +1,13 @@
 package com.example.mockApiServer.controller;
 
+import com.example.mockApiServer.service.MappingImportService;
+import com.example.mockApiServer.wiremock.MappedBodyStore;
+import com.example.mockApiServer.wiremock.SwappableStubMappingStore;
+import com.example.mockApiServer.wiremock.TrafficRecorder;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
 import com.github.tomakehurst.wiremock.stubbing.StubMapping;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,11 +19,17 @@ import org.springframework.web.client.RestTemplate;
 
 import jakarta.annotation.PostConstruct;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/wiremock")
@@ -28,6 +40,24 @@ public class WireMockController {
     @Autowired
     private WireMockServer wireMockServer;
     
+    @Autowired
+    private MappingImportService mappingImportService;
+    
+    @Autowired
+    private SwappableStubMappingStore stubMappingStore;
+    
+    @Autowired
+    private MappedBodyStore responseBodyStore;
+    
+    @Autowired
+    private TrafficRecorder trafficRecorder;
+    
+    @Value("${wiremock.mode:STUB}")
+    private String mode;
+    
+    @Value("${wiremock.proxy-url:http://localhost:8081}")
+    private String proxyUrl;
+    
     @Value("${wiremock.mappings.path:./wiremock/mappings}")
     private String mappingsPath;
     
@@ -40,46 +70,97 @@ public class WireMockController {
     private final RestTemplate restTemplate = new RestTemplate();
     
     @PostConstruct
-    public void loadFromWiremockDirectory() {
+    public void loadFromWiremockDirectory() throws IOException {
+        importWiremockDirectory();
+        // Recording starts only now so its proxy stub is newer than every loaded mapping and
+        // shadows them at equal priority, as when WireMock loaded the directory before recording
+        if ("PROXY".equalsIgnoreCase(mode)) {
+            trafficRecorder.start(wireMockServer, proxyUrl);
+        }
+    }
+    
+    private void importWiremockDirectory() {
         if (!autoLoad) {
             log.info("Auto-load disabled, skipping data loading");
             return;
         }
         
         try {
-            File filesDir = new File(filesPath);
+            long startupStart = System.nanoTime();
             
-            if (!filesDir.exists()) {
-                log.warn("WireMock files directory not found: {}, skipping load", filesPath);
-                return;
-            }
+            // Phase 1: list both directories once; WireMock no longer scans them itself
+            long phaseStart = System.nanoTime();
+            List<Path> mappingFiles = listJsonFiles(Paths.get(mappingsPath));
+            List<Path> bodyFiles = listJsonFiles(Paths.get(filesPath));
+            log.info("Startup load [scan]: {} mapping files, {} body files in {} ms",
+                    mappingFiles.size(), bodyFiles.size(), elapsedMillis(phaseStart));
             
-            File[] jsonFiles = filesDir.listFiles((dir, name) -> name.endsWith(".json"));
-            if (jsonFiles == null || jsonFiles.length == 0) {
-                log.warn("No JSON files found in {}", filesPath);
-                return;
-            }
+            // Phase 2: parse mapping files concurrently
+            phaseStart = System.nanoTime();
+            MappingImportService.ParseResult parsed = mappingImportService.parseFiles(mappingFiles);
+            log.info("Startup load [parse]: {} mappings ({} failed) in {} ms",
+                    parsed.mappings().size(), parsed.failed(), elapsedMillis(phaseStart));
             
-            for (File jsonFile : jsonFiles) {
-                String fileName = jsonFile.getName().replace(".json", "");
-                String endpoint = "/api/" + fileName;
-                String responseBody = Files.readString(jsonFile.toPath());
-                
-                wireMockServer.stubFor(WireMock.get(WireMock.urlEqualTo(endpoint))
-                        .willReturn(WireMock.aResponse()
-                                .withStatus(200)
-                                .withHeader("Content-Type", "application/json")
-                                .withBody(responseBody)));
-                
-                log.info("Loaded endpoint: {} from file: {}", endpoint, jsonFile.getName());
-            }
+            // Phase 3: derive GET /api/<name> for each body file, unless a mapping already serves that endpoint
+            phaseStart = System.nanoTime();
+            Set<String> mappedEndpoints = parsed.mappings().stream()
+                    .map(StubMapping::getRequest)
+                    .filter(request -> request.getMethod().isOneOf(RequestMethod.GET, RequestMethod.ANY))
+                    .map(request -> request.getUrl() != null ? request.getUrl() : request.getUrlPath())
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            List<StubMapping> fileStubs = bodyFiles.stream()
+                    .map(path -> path.getFileName().toString())
+                    .filter(fileName -> !mappedEndpoints.contains(endpointFor(fileName)))
+                    .map(this::stubForBodyFile)
+                    .collect(Collectors.toList());
+            log.info("Startup load [derive]: {} endpoints from body files ({} already mapped) in {} ms",
+                    fileStubs.size(), bodyFiles.size() - fileStubs.size(), elapsedMillis(phaseStart));
+            
+            // Phase 4: register everything in one bulk import
+            phaseStart = System.nanoTime();
+            List<StubMapping> mappings = new ArrayList<>(parsed.mappings());
+            mappings.addAll(fileStubs);
+            mappingImportService.registerMappings(mappings);
+            log.info("Startup load [register]: {} mappings in {} ms", mappings.size(), elapsedMillis(phaseStart));
             
-            log.info("Dynamically loaded {} endpoints from {}", jsonFiles.length, filesPath);
+            log.info("Startup load complete: {} mappings from {} and {} in {} ms",
+                    mappings.size(), mappingsPath, filesPath, elapsedMillis(startupStart));
         } catch (Exception e) {
             log.error("Failed to load from wiremock directory", e);
         }
     }
     
+    private static String endpointFor(String fileName) {
+        return "/api/" + fileName.replace(".json", "");
+    }
+    
+    private StubMapping stubForBodyFile(String fileName) {
+        // Serve the file by name so the body is streamed from the body store, not held on the heap
+        return WireMock.get(WireMock.urlEqualTo(endpointFor(fileName)))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile(fileName))
+                .build();
+    }
+    
+    private static List<Path> listJsonFiles(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            log.warn("WireMock directory not found: {}, skipping", directory);
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(".json"))
+                    .collect(Collectors.toList());
+        }
+    }
+    
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+    
     @GetMapping("/status")
     public ResponseEntity<String> getStatus() {
         boolean isRunning = wireMockServer.isRunning();
@@ -103,11 +184,7 @@ public class WireMockController {
     @GetMapping("/mappings/{path}")
     public ResponseEntity<String> getMappingByPath(@PathVariable String path) {
         try {
-            String fullPath = "/api/" + path;
-            StubMapping mapping = wireMockServer.getStubMappings().stream()
-                    .filter(stub -> stub.getRequest().getUrl().equals(fullPath))
-                    .findFirst()
-                    .orElse(null);
+            StubMapping mapping = stubMappingStore.findByUrl("/api/" + path).orElse(null);
             
             if (mapping == null) {
                 return ResponseEntity.status(404)
@@ -121,7 +198,7 @@ public class WireMockController {
                 mapping.getRequest().getMethod(),
                 mapping.getRequest().getUrl(),
                 mapping.getResponse().getStatus(),
-                mapping.getResponse().getBody().replace("\"", "\\\"")
+                responseBody(mapping).replace("\"", "\\\"")
             );
             
             return ResponseEntity.ok()
@@ -138,11 +215,7 @@ public class WireMockController {
     @GetMapping("/files/{path}")
     public ResponseEntity<String> getFileByPath(@PathVariable String path) {
         try {
-            String fullPath = "/api/" + path;
-            StubMapping mapping = wireMockServer.getStubMappings().stream()
-                    .filter(stub -> stub.getRequest().getUrl().equals(fullPath))
-                    .findFirst()
-                    .orElse(null);
+            StubMapping mapping = stubMappingStore.findByUrl("/api/" + path).orElse(null);
             
             if (mapping == null) {
                 return ResponseEntity.status(404)
@@ -150,7 +223,7 @@ public class WireMockController {
                         .body("{\"error\":\"Response file not found for path: /api/" + path + "\"}");
             }
             
-            String responseBody = mapping.getResponse().getBody();
+            String responseBody = responseBody(mapping);
             return ResponseEntity.ok()
                     .header("Content-Type", "application/json")
                     .body(responseBody);
@@ -161,4 +234,17 @@ public class WireMockController {
                     .body("{\"error\":\"Error retrieving file for path: /api/" + path + "\"}");
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Inline body of a stub, or the content of its body file
+     */
+    private String responseBody(StubMapping mapping) {
+        ResponseDefinition response = mapping.getResponse();
+        if (response.specifiesBodyFile()) {
+            return responseBodyStore.get(response.getBodyFileName())
+                    .map(body -> new String(body, StandardCharsets.UTF_8))
+                    .orElse("");
+        }
+        return response.getBody() != null ? response.getBody() : "";
+    }
+}
@@ -1,32 +1,162 @@
 package com.example.mockApiServer.filter;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.ContentCachingRequestWrapper;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Access log for the application's HTTP endpoints. Request threads only sample the request and
+ * hand a small entry to a bounded queue; a background thread drains the queue in batches and
+ * writes the lines, so a slow appender never holds up a request. When the queue is full entries
+ * are dropped and counted instead. Bodies are only captured when enabled, and then only up to a
+ * limit for sampled requests.
+ */
 @Component
-public class RequestLoggingFilter implements Filter {
+public class RequestLoggingFilter implements Filter, DisposableBean {
     
     private static final Logger log = LoggerFactory.getLogger(RequestLoggingFilter.class);
     
+    private final boolean enabled;
+    private final double sampleRate;
+    private final boolean includeBody;
+    private final int maxBodyBytes;
+    private final int batchSize;
+    private final BlockingQueue<AccessLogEntry> queue;
+    private final Counter dropped;
+    private final Thread writer;
+    private volatile boolean running = true;
+    
+    public RequestLoggingFilter(@Value("${request-logging.enabled:true}") boolean enabled,
+                                @Value("${request-logging.sample-rate:1.0}") double sampleRate,
+                                @Value("${request-logging.include-body:false}") boolean includeBody,
+                                @Value("${request-logging.max-body-bytes:1024}") int maxBodyBytes,
+                                @Value("${request-logging.queue-size:8192}") int queueSize,
+                                @Value("${request-logging.batch-size:256}") int batchSize,
+                                MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.includeBody = includeBody;
+        this.maxBodyBytes = maxBodyBytes;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.dropped = Counter.builder("http.server.access.log.dropped")
+                .description("Access log entries dropped because the log writer fell behind")
+                .register(meterRegistry);
+        this.writer = new Thread(this::writeLoop, "request-log-writer");
+        writer.setDaemon(true);
+        if (enabled) {
+            writer.start();
+        }
+    }
+    
     @Override
-    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) 
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
         
-        HttpServletRequest httpRequest = (HttpServletRequest) request;
-        ContentCachingRequestWrapper wrappedRequest = new ContentCachingRequestWrapper(httpRequest);
+        if (!enabled || !log.isInfoEnabled() || !sampled()) {
+            chain.doFilter(request, response);
+            return;
+        }
         
-        log.info("{} {} from {} - Content-Length: {}", 
-                httpRequest.getMethod(), 
-                httpRequest.getRequestURI(), 
-                httpRequest.getRemoteAddr(),
-                httpRequest.getContentLength());
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        ServletRequest forwarded = includeBody ? new ContentCachingRequestWrapper(httpRequest, maxBodyBytes) : httpRequest;
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(forwarded, response);
+        } finally {
+            AccessLogEntry entry = new AccessLogEntry(
+                    httpRequest.getMethod(),
+                    httpRequest.getRequestURI(),
+                    httpRequest.getRemoteAddr(),
+                    httpRequest.getContentLengthLong(),
+                    ((HttpServletResponse) response).getStatus(),
+                    System.nanoTime() - start,
+                    forwarded instanceof ContentCachingRequestWrapper cached ? cached.getContentAsByteArray() : null);
+            if (!queue.offer(entry)) {
+                dropped.increment();
+            }
+        }
+    }
+    
+    @Override
+    public void destroy() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private boolean sampled() {
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+    
+    private void writeLoop() {
+        List<AccessLogEntry> batch = new ArrayList<>(batchSize);
+        StringBuilder line = new StringBuilder(256);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (queue.drainTo(batch, batchSize) == 0) {
+                    AccessLogEntry next = queue.poll(1, TimeUnit.SECONDS);
+                    if (next == null) {
+                        continue;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+            } catch (InterruptedException e) {
+                // Shutting down: write whatever is still queued
+                queue.drainTo(batch);
+                running = false;
+            }
+            for (AccessLogEntry entry : batch) {
+                line.setLength(0);
+                entry.appendTo(line);
+                log.info(line.toString());
+            }
+            batch.clear();
+        }
+    }
+    
+    /**
+     * One sampled request, formatted on the writer thread
+     */
+    private record AccessLogEntry(String method, String uri, String remoteAddr, long contentLength, int status,
+                                  long durationNanos, byte[] body) {
         
-        chain.doFilter(wrappedRequest, response);
+        void appendTo(StringBuilder line) {
+            line.append(method).append(' ').append(uri)
+                    .append(" from ").append(remoteAddr)
+                    .append(" - status: ").append(status)
+                    .append(", Content-Length: ").append(contentLength)
+                    .append(", time: ").append(durationNanos / 1_000_000).append('.');
+            long micros = durationNanos / 1_000 % 1_000;
+            if (micros < 100) {
+                line.append(micros < 10 ? "00" : "0");
+            }
+            line.append(micros).append(" ms");
+            if (body != null && body.length > 0) {
+                line.append(", body: ").append(new String(body, StandardCharsets.UTF_8));
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package com.example.mockApiServer.health;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Health indicator that runs its check on a background thread every refresh interval and answers
+ * probes from the last result, so a probe never waits on a remote call and returns in constant
+ * time. A result older than the staleness threshold - the check is hanging or the refresher died -
+ * is reported as DOWN.
+ */
+public abstract class CachedHealthIndicator implements HealthIndicator, InitializingBean, DisposableBean {
+    
+    private static final Logger log = LoggerFactory.getLogger(CachedHealthIndicator.class);
+    
+    private final Duration refreshInterval;
+    private final Duration staleAfter;
+    private final ScheduledExecutorService refresher;
+    private volatile Health cached = Health.unknown().withDetail("status", "initializing").build();
+    private volatile Instant checkedAt;
+    
+    /**
+     * @param name Name of the background refresh thread
+     */
+    protected CachedHealthIndicator(String name, Duration refreshInterval, Duration staleAfter) {
+        this.refreshInterval = refreshInterval;
+        this.staleAfter = staleAfter;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Perform the actual health check; runs on the refresh thread only
+     */
+    protected abstract Health check();
+    
+    @Override
+    public Health health() {
+        Instant lastCheck = checkedAt;
+        if (lastCheck != null && Duration.between(lastCheck, Instant.now()).compareTo(staleAfter) > 0) {
+            return Health.down()
+                    .withDetail("status", "stale")
+                    .withDetail("checkedAt", lastCheck.toString())
+                    .build();
+        }
+        return cached;
+    }
+    
+    @Override
+    public void afterPropertiesSet() {
+        // A first check that never completes also goes stale
+        checkedAt = Instant.now();
+        refresher.scheduleWithFixedDelay(this::refresh, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+    
+    private void refresh() {
+        Health health;
+        try {
+            health = check();
+        } catch (Exception e) {
+            log.debug("Health check {} failed", getClass().getSimpleName(), e);
+            health = Health.down()
+                    .withDetail("error", String.valueOf(e.getMessage()))
+                    .build();
+        }
+        Instant now = Instant.now();
+        cached = Health.status(health.getStatus())
+                .withDetails(health.getDetails())
+                .withDetail("checkedAt", now.toString())
+                .build();
+        checkedAt = now;
+    }
+}
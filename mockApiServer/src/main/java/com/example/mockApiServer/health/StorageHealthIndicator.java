@@ -1,35 +1,44 @@
 package com.example.mockApiServer.health;
 
 import com.example.mockApiServer.config.StorageConfig;
+import com.example.mockApiServer.service.storage.ReplicatedStorageService;
 import com.example.mockApiServer.service.storage.StorageService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.health.Health;
-import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 /**
- * Health indicator for storage service
+ * Health indicator for storage service, checked in the background so probes never call the remote storage
  */
 @Component
-public class StorageHealthIndicator implements HealthIndicator {
+public class StorageHealthIndicator extends CachedHealthIndicator {
     
     private final StorageService storageService;
     private final StorageConfig storageConfig;
     
-    public StorageHealthIndicator(StorageService storageService, StorageConfig storageConfig) {
+    public StorageHealthIndicator(StorageService storageService, StorageConfig storageConfig,
+                                  @Value("${health.refresh-interval:30s}") Duration refreshInterval,
+                                  @Value("${health.stale-after:90s}") Duration staleAfter) {
+        super("storage-health", refreshInterval, staleAfter);
         this.storageService = storageService;
         this.storageConfig = storageConfig;
     }
     
     @Override
-    public Health health() {
+    protected Health check() {
         try {
             // Try to list snapshots to verify connection
             storageService.listSnapshots();
             
-            return Health.up()
+            Health.Builder health = Health.up()
                     .withDetail("type", storageConfig.getType())
-                    .withDetail("status", "connected")
-                    .build();
+                    .withDetail("status", "connected");
+            if (storageService instanceof ReplicatedStorageService replicated) {
+                health.withDetail("replicas", replicated.getReplicaStatus());
+            }
+            return health.build();
         } catch (Exception e) {
             return Health.down()
                     .withDetail("type", storageConfig.getType())
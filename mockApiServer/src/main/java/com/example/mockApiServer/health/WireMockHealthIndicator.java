@@ -1,29 +1,52 @@
 package com.example.mockApiServer.health;
 
+import com.example.mockApiServer.wiremock.BoundedRequestJournalStore;
+import com.example.mockApiServer.wiremock.MappedBodyStore;
+import com.example.mockApiServer.wiremock.SwappableStubMappingStore;
 import com.github.tomakehurst.wiremock.WireMockServer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.health.Health;
-import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 /**
- * Health indicator for WireMock server
+ * Health indicator for WireMock server, refreshed in the background
  */
 @Component
-public class WireMockHealthIndicator implements HealthIndicator {
+public class WireMockHealthIndicator extends CachedHealthIndicator {
     
     private final WireMockServer wireMockServer;
+    private final SwappableStubMappingStore stubMappingStore;
+    private final MappedBodyStore bodyStore;
+    private final BoundedRequestJournalStore requestJournalStore;
     
-    public WireMockHealthIndicator(WireMockServer wireMockServer) {
+    public WireMockHealthIndicator(WireMockServer wireMockServer, SwappableStubMappingStore stubMappingStore,
+                                   MappedBodyStore bodyStore, BoundedRequestJournalStore requestJournalStore,
+                                   @Value("${health.refresh-interval:30s}") Duration refreshInterval,
+                                   @Value("${health.stale-after:90s}") Duration staleAfter) {
+        super("wiremock-health", refreshInterval, staleAfter);
         this.wireMockServer = wireMockServer;
+        this.stubMappingStore = stubMappingStore;
+        this.bodyStore = bodyStore;
+        this.requestJournalStore = requestJournalStore;
     }
     
     @Override
-    public Health health() {
+    protected Health check() {
         try {
             if (wireMockServer.isRunning()) {
                 return Health.up()
                         .withDetail("port", wireMockServer.port())
-                        .withDetail("mappings", wireMockServer.getStubMappings().size())
+                        .withDetail("mappings", stubMappingStore.getAll().count())
+                        .withDetail("mappedBodies", bodyStore.getMappedCount())
+                        .withDetail("mappedBodyBytes", bodyStore.getMappedBytes())
+                        .withDetail("sharedBodies", bodyStore.getSharedBodyCount())
+                        .withDetail("snapshotSets", stubMappingStore.getSetSizes())
+                        .withDetail("journalPolicy", requestJournalStore.getPolicy())
+                        .withDetail("journalSize", requestJournalStore.getSize())
+                        .withDetail("journalDropped", requestJournalStore.getDroppedCount())
+                        .withDetail("journalEvicted", requestJournalStore.getEvictedCount())
                         .withDetail("status", "running")
                         .build();
             } else {
@@ -0,0 +1,291 @@
+package com.example.mockApiServer.service;
+
+import com.example.mockApiServer.wiremock.MockServerStores;
+import com.example.mockApiServer.wiremock.PersistOnlyMappingsSource;
+import com.example.mockApiServer.wiremock.SwappableStubMappingStore;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.stubbing.InMemoryScenarios;
+import com.github.tomakehurst.wiremock.stubbing.Scenarios;
+import com.github.tomakehurst.wiremock.stubbing.StubImport;
+import com.github.tomakehurst.wiremock.stubbing.StubImportBuilder;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import com.github.tomakehurst.wiremock.stubbing.StubMappings;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Parses mapping files in parallel and registers them with WireMock as a single bulk import
+ */
+@Service
+public class MappingImportService {
+    
+    private static final Logger log = LoggerFactory.getLogger(MappingImportService.class);
+    
+    private final WireMockServer wireMockServer;
+    private final SwappableStubMappingStore stubMappingStore;
+    private final PersistOnlyMappingsSource mappingsSource;
+    private final Scenarios scenarios;
+    private final Timer swapTimer;
+    private final ForkJoinPool parsePool;
+    private volatile ImportResult lastReload = new ImportResult(0, 0, 0, 0, 0);
+    
+    public MappingImportService(WireMockServer wireMockServer,
+                                SwappableStubMappingStore stubMappingStore,
+                                PersistOnlyMappingsSource mappingsSource,
+                                MockServerStores wireMockStores,
+                                MeterRegistry meterRegistry,
+                                @Value("${wiremock.restore.parallelism:0}") int parallelism) {
+        this.wireMockServer = wireMockServer;
+        this.stubMappingStore = stubMappingStore;
+        this.mappingsSource = mappingsSource;
+        // Scenario state lives entirely in the store, so this shares it with the running server
+        this.scenarios = new InMemoryScenarios(wireMockStores.getScenariosStore());
+        this.swapTimer = Timer.builder("wiremock.snapshot.swap")
+                .description("Time taken to switch the live stub set to a restored snapshot")
+                .register(meterRegistry);
+        this.parsePool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        // Resets, including WireMock's admin reset, reload the mappings directory with the parallel parser
+        mappingsSource.reloadWith(this::reloadMappings);
+    }
+    
+    /**
+     * Parse every mapping file in the directory and import the result into WireMock
+     */
+    public ImportResult importFrom(Path mappingsDir) throws IOException {
+        long parseStart = System.nanoTime();
+        ParseResult parsed = parseMappings(mappingsDir);
+        long parseMillis = (System.nanoTime() - parseStart) / 1_000_000;
+        
+        long registerStart = System.nanoTime();
+        registerMappings(parsed.mappings());
+        long registerMillis = (System.nanoTime() - registerStart) / 1_000_000;
+        
+        log.info("Imported {} mappings from {} (failed: {}, parse: {} ms, register: {} ms)",
+                parsed.mappings().size(), mappingsDir, parsed.failed(), parseMillis, registerMillis);
+        return new ImportResult(parsed.mappings().size(), parsed.failed(), parseMillis, registerMillis, 0);
+    }
+    
+    /**
+     * Parse every mapping file in the directory and atomically replace the live stub set with the result
+     */
+    public ImportResult swapFrom(Path mappingsDir) throws IOException {
+        long parseStart = System.nanoTime();
+        ParseResult parsed = parseMappings(mappingsDir);
+        long parseMillis = (System.nanoTime() - parseStart) / 1_000_000;
+        
+        long registerStart = System.nanoTime();
+        long swapMicros = swapMappings(parsed.mappings());
+        long registerMillis = (System.nanoTime() - registerStart) / 1_000_000;
+        
+        log.info("Swapped in {} mappings from {} (failed: {}, parse: {} ms, register: {} ms, swap: {} us)",
+                parsed.mappings().size(), mappingsDir, parsed.failed(), parseMillis, registerMillis, swapMicros);
+        return new ImportResult(parsed.mappings().size(), parsed.failed(), parseMillis, registerMillis, swapMicros);
+    }
+    
+    /**
+     * Re-register only the mappings a restore changed: import the rewritten files and
+     * remove stubs whose files were overwritten or deleted and did not come back
+     */
+    public ImportResult applyChanges(List<Path> changedFiles, List<StubMapping> replacedMappings) throws IOException {
+        long parseStart = System.nanoTime();
+        ParseResult parsed = parseFiles(changedFiles);
+        long parseMillis = (System.nanoTime() - parseStart) / 1_000_000;
+        
+        long registerStart = System.nanoTime();
+        Set<UUID> importedIds = parsed.mappings().stream().map(StubMapping::getId).collect(Collectors.toSet());
+        int removed = 0;
+        for (StubMapping replaced : replacedMappings) {
+            if (importedIds.contains(replaced.getId())) {
+                continue;
+            }
+            StubMapping live = stubMappingStore.get(replaced.getId()).orElse(null);
+            if (live != null) {
+                wireMockServer.removeStubMapping(live);
+                removed++;
+            }
+        }
+        registerMappings(parsed.mappings());
+        long registerMillis = (System.nanoTime() - registerStart) / 1_000_000;
+        
+        log.info("Applied {} changed and {} removed mappings (failed: {}, parse: {} ms, register: {} ms)",
+                parsed.mappings().size(), removed, parsed.failed(), parseMillis, registerMillis);
+        return new ImportResult(parsed.mappings().size(), parsed.failed(), parseMillis, registerMillis, 0);
+    }
+    
+    /**
+     * Replace the live stub set in one step, keeping scenario state consistent
+     * @return Swap latency in microseconds
+     */
+    public long swapMappings(List<StubMapping> mappings) {
+        // Register scenarios first so new scenario stubs never match against a missing scenario
+        mappings.forEach(scenarios::onStubMappingAdded);
+        
+        long swapStart = System.nanoTime();
+        List<StubMapping> previous = stubMappingStore.swap(mappings);
+        long swapNanos = System.nanoTime() - swapStart;
+        swapTimer.record(swapNanos, TimeUnit.NANOSECONDS);
+        
+        Set<UUID> retainedIds = mappings.stream().map(StubMapping::getId).collect(Collectors.toSet());
+        previous.stream()
+                .filter(StubMapping::isInScenario)
+                .filter(mapping -> !retainedIds.contains(mapping.getId()))
+                .forEach(scenarios::onStubMappingRemoved);
+        
+        return swapNanos / 1_000;
+    }
+    
+    /**
+     * Reset WireMock's live stubs, request journal and scenarios to the mappings directory, keeping
+     * the scenarios that loaded snapshot sets use
+     * @return What was reloaded from the mappings directory
+     */
+    public ImportResult resetLive() {
+        wireMockServer.resetAll();
+        stubMappingStore.getSetMappings().forEach(scenarios::onStubMappingAdded);
+        return lastReload;
+    }
+    
+    private void reloadMappings(StubMappings stubMappings) {
+        Path mappingsDir = mappingsSource.getMappingsRoot();
+        long parseStart = System.nanoTime();
+        ParseResult parsed;
+        try {
+            parsed = parseMappings(mappingsDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to reload mappings from " + mappingsDir, e);
+        }
+        long parseMillis = (System.nanoTime() - parseStart) / 1_000_000;
+        
+        long registerStart = System.nanoTime();
+        parsed.mappings().forEach(stubMappings::addMapping);
+        long registerMillis = (System.nanoTime() - registerStart) / 1_000_000;
+        
+        log.info("Reloaded {} mappings from {} (failed: {}, parse: {} ms, register: {} ms)",
+                parsed.mappings().size(), mappingsDir, parsed.failed(), parseMillis, registerMillis);
+        lastReload = new ImportResult(parsed.mappings().size(), parsed.failed(), parseMillis, registerMillis, 0);
+    }
+    
+    /**
+     * Load or replace a named snapshot set served next to the live stub set
+     * @return The number of stubs in the set
+     */
+    public int loadSet(String set, List<StubMapping> mappings) {
+        mappings.forEach(scenarios::onStubMappingAdded);
+        List<StubMapping> previous = stubMappingStore.putSet(set, mappings);
+        releaseScenarios(previous);
+        return mappings.size();
+    }
+    
+    /**
+     * Drop a named snapshot set
+     * @return Whether the set was loaded
+     */
+    public boolean unloadSet(String set) {
+        if (!stubMappingStore.hasSet(set)) {
+            return false;
+        }
+        releaseScenarios(stubMappingStore.removeSet(set));
+        return true;
+    }
+    
+    // The same stub can be loaded in several sets, so scenarios only forget stubs no set holds any more
+    private void releaseScenarios(List<StubMapping> removed) {
+        removed.stream()
+                .filter(StubMapping::isInScenario)
+                .filter(mapping -> stubMappingStore.get(mapping.getId()).isEmpty())
+                .forEach(scenarios::onStubMappingRemoved);
+    }
+    
+    /**
+     * Read and parse all top-level *.json mapping files concurrently
+     */
+    public ParseResult parseMappings(Path mappingsDir) throws IOException {
+        if (!Files.exists(mappingsDir)) {
+            return new ParseResult(List.of(), 0);
+        }
+        
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(mappingsDir)) {
+            files = paths.filter(Files::isRegularFile)
+                    .filter(path -> path.toString().endsWith(".json"))
+                    .collect(Collectors.toList());
+        }
+        return parseFiles(files);
+    }
+    
+    /**
+     * Read and parse the given mapping files concurrently
+     */
+    public ParseResult parseFiles(List<Path> files) throws IOException {
+        AtomicInteger failed = new AtomicInteger();
+        try {
+            List<StubMapping> mappings = parsePool.submit(() -> files.parallelStream()
+                    .map(path -> parseMapping(path, failed))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList()))
+                    .get();
+            return new ParseResult(mappings, failed.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing mappings", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to parse mappings", e.getCause());
+        }
+    }
+    
+    /**
+     * Register parsed mappings in one bulk import call
+     */
+    public void registerMappings(List<StubMapping> mappings) {
+        if (mappings.isEmpty()) {
+            return;
+        }
+        StubImportBuilder builder = StubImport.stubImport().overwriteExisting();
+        mappings.forEach(builder::stub);
+        wireMockServer.importStubs(builder.build());
+    }
+    
+    private StubMapping parseMapping(Path path, AtomicInteger failed) {
+        try {
+            StubMapping mapping = StubMapping.buildFrom(Files.readString(path));
+            mappingsSource.loadedFrom(mapping, path);
+            log.debug("Parsed mapping from: {}", path.getFileName());
+            return mapping;
+        } catch (Exception e) {
+            log.error("Failed to load mapping from: {}", path, e);
+            failed.incrementAndGet();
+            return null;
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        parsePool.shutdown();
+    }
+    
+    public record ParseResult(List<StubMapping> mappings, int failed) {
+    }
+    
+    public record ImportResult(int mappings, int failed, long parseMillis, long registerMillis, long swapMicros) {
+    }
+}
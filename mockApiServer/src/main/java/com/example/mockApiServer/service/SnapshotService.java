@@ -102,19 +102,23 @@ public class SnapshotService {
     private void copyDirectory(Path source, Path target) throws IOException {
         Files.createDirectories(target);
         
+        List<Path> files;
         try (Stream<Path> paths = Files.walk(source)) {
-            paths.filter(Files::isRegularFile)
-                 .forEach(sourcePath -> {
-                     try {
-                         Path targetPath = target.resolve(source.relativize(sourcePath));
-                         Files.createDirectories(targetPath.getParent());
-                         Files.copy(sourcePath, targetPath, 
-                                  java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                     } catch (IOException e) {
-                         log.error("Failed to copy file: {}", sourcePath, e);
-                     }
-                 });
+            files = paths.filter(Files::isRegularFile).collect(java.util.stream.Collectors.toList());
         }
+        
+        // Copies are independent, so spread them over the common pool
+        files.parallelStream()
+             .forEach(sourcePath -> {
+                 try {
+                     Path targetPath = target.resolve(source.relativize(sourcePath));
+                     Files.createDirectories(targetPath.getParent());
+                     Files.copy(sourcePath, targetPath, 
+                              java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                 } catch (IOException e) {
+                     log.error("Failed to copy file: {}", sourcePath, e);
+                 }
+             });
     }
     
     public List<String> getAvailableVersions() throws IOException {
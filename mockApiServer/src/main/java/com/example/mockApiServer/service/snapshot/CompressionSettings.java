@@ -0,0 +1,37 @@
+package com.example.mockApiServer.service.snapshot;
+
+import java.util.zip.Deflater;
+
+/**
+ * How snapshot archive entries are compressed
+ * @param codec Compression applied to entries that are worth compressing
+ * @param level Deflate level from 0 (none) to 9 (best), or -1 for the JDK default
+ * @param storeThresholdBytes Entries smaller than this are stored uncompressed
+ * @param threads Worker threads compressing entries in parallel
+ */
+public record CompressionSettings(Codec codec, int level, int storeThresholdBytes, int threads) {
+    
+    public enum Codec {
+        /** Deflate entries, storing those that are small or do not compress */
+        DEFLATE,
+        /** Store every entry uncompressed */
+        STORED
+    }
+    
+    public CompressionSettings {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between -1 and 9: " + level);
+        }
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+    }
+    
+    public CompressionSettings withOverrides(Codec codecOverride, Integer levelOverride) {
+        return new CompressionSettings(
+                codecOverride != null ? codecOverride : codec,
+                levelOverride != null ? levelOverride : level,
+                storeThresholdBytes,
+                threads);
+    }
+}
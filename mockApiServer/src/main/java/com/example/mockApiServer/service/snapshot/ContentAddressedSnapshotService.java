@@ -0,0 +1,194 @@
+package com.example.mockApiServer.service.snapshot;
+
+import com.example.mockApiServer.service.storage.SnapshotWriter;
+import com.example.mockApiServer.service.storage.StorageService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Content-addressed snapshot format: every file is stored once as a blob keyed by its
+ * SHA-256 hash, and a snapshot is a small archive holding a manifest that points at those blobs.
+ * Creating a snapshot uploads only blobs the backend lacks; restoring fetches only blobs
+ * that are not already somewhere under the local WireMock directory.
+ */
+@Service
+public class ContentAddressedSnapshotService {
+    
+    /**
+     * Archive entry that marks a snapshot as content-addressed
+     */
+    public static final String MANIFEST_ENTRY = "content-manifest.json";
+    
+    private static final Logger log = LoggerFactory.getLogger(ContentAddressedSnapshotService.class);
+    
+    private final StorageService storageService;
+    private final ObjectMapper objectMapper;
+    
+    public ContentAddressedSnapshotService(StorageService storageService, ObjectMapper objectMapper) {
+        this.storageService = storageService;
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * Upload missing blobs for the current WireMock files and save the manifest as snapshot {@code name}
+     */
+    public CreateResult createSnapshot(String name) throws IOException {
+        List<Path> files = WireMockDirectory.listSnapshotFiles();
+        SnapshotManifest manifest = SnapshotManifest.describe(files);
+        List<SnapshotManifest.Entry> entries = manifest.entries();
+        
+        // One source file per distinct blob
+        Map<String, Path> sources = new LinkedHashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            sources.putIfAbsent(entries.get(i).sha256(), files.get(i));
+        }
+        
+        List<String> missing = sources.keySet().parallelStream()
+                .filter(hash -> !blobExists(hash))
+                .collect(Collectors.toList());
+        
+        // Handed over as one batch: backends that commit writes can add all blobs in one commit
+        Map<String, SnapshotWriter> uploads = new LinkedHashMap<>();
+        long uploadedBytes = 0;
+        for (String hash : missing) {
+            Path source = sources.get(hash);
+            uploads.put(hash, out -> Files.copy(source, out));
+            uploadedBytes += Files.size(source);
+        }
+        storageService.saveBlobs(uploads);
+        
+        storageService.saveSnapshot(name, out -> writeManifestArchive(out, manifest));
+        log.info("Content-addressed snapshot {} saved: {} files, {} blobs, {} uploaded ({} bytes)",
+                name, entries.size(), sources.size(), missing.size(), uploadedBytes);
+        return new CreateResult(entries.size(), sources.size(), missing.size(), uploadedBytes);
+    }
+    
+    /**
+     * Read a manifest from the current archive entry
+     */
+    public SnapshotManifest readManifest(InputStream in) throws IOException {
+        // Jackson would close the zip stream, so read the entry fully first
+        return objectMapper.readValue(in.readAllBytes(), SnapshotManifest.class);
+    }
+    
+    /**
+     * Materialise the files described by a manifest under the WireMock directory,
+     * writing only changed files and deleting files the manifest no longer contains
+     */
+    public ExtractResult restore(SnapshotManifest manifest) throws IOException {
+        RestorePlan plan = RestorePlan.forManifest(manifest);
+        List<SnapshotManifest.Entry> changed = manifest.entries().stream()
+                .filter(entry -> !plan.skipIfUnchanged(entry.path()))
+                .collect(Collectors.toList());
+        
+        // Any local file with the right content can stand in for a blob, wherever it lives
+        Map<String, Path> localByHash = new HashMap<>();
+        for (Map.Entry<String, String> local : plan.localHashes().entrySet()) {
+            localByHash.putIfAbsent(local.getValue(), WireMockDirectory.resolve(local.getKey()));
+        }
+        
+        Path staging = Files.createTempDirectory(WireMockDirectory.ROOT, ".restore-");
+        try {
+            // Stage every needed blob before touching any target, since targets may be sources too
+            List<String> needed = changed.stream().map(SnapshotManifest.Entry::sha256).distinct().collect(Collectors.toList());
+            AtomicLong fetchedBytes = new AtomicLong();
+            long fetched = needed.parallelStream()
+                    .filter(hash -> stageBlob(hash, localByHash.get(hash), staging, fetchedBytes))
+                    .count();
+            
+            for (SnapshotManifest.Entry entry : changed) {
+                Path target = WireMockDirectory.resolve(entry.path());
+                plan.beforeWrite(entry.path(), target);
+                Files.createDirectories(target.getParent());
+                Files.copy(staging.resolve(entry.sha256()), target, StandardCopyOption.REPLACE_EXISTING);
+                plan.afterWrite(target);
+            }
+            plan.deleteRemoved();
+            
+            ExtractResult result = plan.toResult((int) fetched);
+            log.info("Content-addressed restore: {} files written, {} unchanged, {} deleted, {} blobs fetched ({} bytes)",
+                    result.filesWritten(), result.filesUnchanged(), result.filesDeleted(), fetched, fetchedBytes.get());
+            return result;
+        } finally {
+            deleteRecursively(staging);
+        }
+    }
+    
+    private void writeManifestArchive(OutputStream out, SnapshotManifest manifest) throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(out);
+        try {
+            zos.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+            zos.write(objectMapper.writeValueAsBytes(manifest));
+            zos.closeEntry();
+        } finally {
+            zos.finish();
+        }
+    }
+    
+    /**
+     * Copy a blob into the staging directory from a local file or the storage backend
+     * @return true if the blob had to be fetched from the backend
+     */
+    private boolean stageBlob(String hash, Path localSource, Path staging, AtomicLong fetchedBytes) {
+        Path staged = staging.resolve(hash);
+        try {
+            if (localSource != null) {
+                Files.copy(localSource, staged);
+                return false;
+            }
+            MessageDigest digest = ContentHash.newDigest();
+            try (InputStream in = storageService.openBlob(hash);
+                 OutputStream out = new DigestOutputStream(Files.newOutputStream(staged), digest)) {
+                fetchedBytes.addAndGet(in.transferTo(out));
+            }
+            String actual = ContentHash.toHex(digest);
+            if (!hash.equals(actual)) {
+                throw new IOException("Blob " + hash + " failed verification, content hashes to " + actual);
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to stage blob " + hash, e);
+        }
+    }
+    
+    private boolean blobExists(String hash) {
+        try {
+            return storageService.blobExists(hash);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to check blob " + hash, e);
+        }
+    }
+    
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+    
+    public record CreateResult(int files, int blobs, int uploadedBlobs, long uploadedBytes) {
+    }
+}
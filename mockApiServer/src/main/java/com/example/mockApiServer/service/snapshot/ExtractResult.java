@@ -0,0 +1,25 @@
+package com.example.mockApiServer.service.snapshot;
+
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Outcome of extracting a snapshot into the WireMock directory
+ * @param filesWritten Files written to disk
+ * @param filesUnchanged Files already present with identical content
+ * @param filesDeleted Local files removed because the snapshot no longer contains them
+ * @param blobsFetched Content-addressed blobs downloaded from the storage backend
+ * @param incremental Whether the snapshot carried a manifest, making the change lists below complete
+ * @param changedMappingFiles Mapping files that were written
+ * @param replacedMappings Mappings previously on disk that were overwritten or deleted
+ */
+public record ExtractResult(int filesWritten,
+                            int filesUnchanged,
+                            int filesDeleted,
+                            int blobsFetched,
+                            boolean incremental,
+                            List<Path> changedMappingFiles,
+                            List<StubMapping> replacedMappings) {
+}
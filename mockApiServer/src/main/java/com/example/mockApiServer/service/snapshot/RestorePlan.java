@@ -0,0 +1,114 @@
+package com.example.mockApiServer.service.snapshot;
+
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Diff between the files under the WireMock directory and a snapshot manifest.
+ * Tracks what an extraction writes, skips and deletes so that only changed
+ * mappings need to be registered again.
+ */
+class RestorePlan {
+    
+    private static final Logger log = LoggerFactory.getLogger(RestorePlan.class);
+    
+    private final Map<String, String> localHashes;
+    private final Map<String, SnapshotManifest.Entry> targetEntries;
+    private final List<Path> changedMappingFiles = new ArrayList<>();
+    private final List<StubMapping> replacedMappings = new ArrayList<>();
+    private int written;
+    private int unchanged;
+    private int deleted;
+    
+    private RestorePlan(Map<String, String> localHashes, Map<String, SnapshotManifest.Entry> targetEntries) {
+        this.localHashes = localHashes;
+        this.targetEntries = targetEntries;
+    }
+    
+    /**
+     * Hash the local files in parallel and plan a restore of the given manifest
+     */
+    static RestorePlan forManifest(SnapshotManifest manifest) throws IOException {
+        Map<String, String> localHashes = SnapshotManifest.describe(WireMockDirectory.listSnapshotFiles()).entries().stream()
+                .collect(Collectors.toMap(SnapshotManifest.Entry::path, SnapshotManifest.Entry::sha256));
+        return new RestorePlan(localHashes, manifest.byPath());
+    }
+    
+    /**
+     * Content hashes of the local files, keyed by entry name
+     */
+    Map<String, String> localHashes() {
+        return localHashes;
+    }
+    
+    /**
+     * Whether the local file already matches the manifest; counts it as unchanged if so
+     */
+    boolean skipIfUnchanged(String entryName) {
+        SnapshotManifest.Entry entry = targetEntries.get(entryName);
+        if (entry != null && entry.sha256().equals(localHashes.get(entryName))) {
+            unchanged++;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Record that a file is about to be overwritten, capturing the mapping it held
+     */
+    void beforeWrite(String entryName, Path target) {
+        if (localHashes.containsKey(entryName)) {
+            captureReplacedMapping(target);
+        }
+    }
+    
+    void afterWrite(Path target) {
+        written++;
+        if (WireMockDirectory.isMappingFile(target)) {
+            changedMappingFiles.add(target);
+        }
+    }
+    
+    /**
+     * Delete local files that the manifest no longer contains, except offloaded bodies
+     */
+    void deleteRemoved() throws IOException {
+        for (String entryName : localHashes.keySet()) {
+            if (targetEntries.containsKey(entryName)) {
+                continue;
+            }
+            Path path = WireMockDirectory.resolve(entryName);
+            if (WireMockDirectory.isOffloadedBody(path)) {
+                continue;
+            }
+            captureReplacedMapping(path);
+            if (Files.deleteIfExists(path)) {
+                deleted++;
+            }
+        }
+    }
+    
+    ExtractResult toResult(int blobsFetched) {
+        return new ExtractResult(written, unchanged, deleted, blobsFetched, true, changedMappingFiles, replacedMappings);
+    }
+    
+    private void captureReplacedMapping(Path path) {
+        if (!WireMockDirectory.isMappingFile(path)) {
+            return;
+        }
+        try {
+            replacedMappings.add(StubMapping.buildFrom(Files.readString(path)));
+        } catch (Exception e) {
+            log.warn("Could not read replaced mapping: {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.mockApiServer.service.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.compress.archivers.zip.DefaultBackingStoreSupplier;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntryRequest;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipMethod;
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Writes and extracts snapshot archives of the WireMock directory
+ */
+@Service
+public class SnapshotArchiveService {
+    
+    /**
+     * First entry of an archive, listing the hash and size of every other entry
+     */
+    public static final String MANIFEST_ENTRY = "snapshot-manifest.json";
+    
+    private static final Logger log = LoggerFactory.getLogger(SnapshotArchiveService.class);
+    
+    /**
+     * Formats that are already compressed and gain nothing from deflate
+     */
+    private static final Set<String> INCOMPRESSIBLE_EXTENSIONS = Set.of(
+            "gz", "zip", "jar", "bz2", "xz", "zst", "br", "7z",
+            "png", "jpg", "jpeg", "gif", "webp", "ico", "woff", "woff2", "pdf", "mp3", "mp4");
+    
+    /**
+     * Bytes deflated from the start of an entry to judge whether it is worth compressing
+     */
+    private static final int PROBE_BYTES = 16 * 1024;
+    
+    /**
+     * Entries whose probe does not shrink below this ratio are stored
+     */
+    private static final double MIN_COMPRESSION_RATIO = 0.9;
+    
+    private final ContentAddressedSnapshotService contentAddressedSnapshotService;
+    private final ObjectMapper objectMapper;
+    private final CompressionSettings defaultCompression;
+    
+    public SnapshotArchiveService(ContentAddressedSnapshotService contentAddressedSnapshotService,
+                                  ObjectMapper objectMapper,
+                                  @Value("${wiremock.snapshot.compression.codec:DEFLATE}") CompressionSettings.Codec codec,
+                                  @Value("${wiremock.snapshot.compression.level:-1}") int level,
+                                  @Value("${wiremock.snapshot.compression.store-threshold-bytes:512}") int storeThresholdBytes,
+                                  @Value("${wiremock.snapshot.compression.threads:0}") int threads) {
+        this.contentAddressedSnapshotService = contentAddressedSnapshotService;
+        this.objectMapper = objectMapper;
+        this.defaultCompression = new CompressionSettings(codec, level, storeThresholdBytes, threads);
+    }
+    
+    public CompressionSettings getDefaultCompression() {
+        return defaultCompression;
+    }
+    
+    /**
+     * Write a zip of the current WireMock mappings and files to the given sink
+     */
+    public void writeArchive(OutputStream out) throws IOException {
+        writeArchive(out, defaultCompression);
+    }
+    
+    /**
+     * Write a zip of the current WireMock mappings and files to the given sink,
+     * compressing entries in parallel with the given settings
+     */
+    public void writeArchive(OutputStream out, CompressionSettings compression) throws IOException {
+        List<Path> files = WireMockDirectory.listSnapshotFiles();
+        SnapshotManifest manifest = SnapshotManifest.describe(files);
+        byte[] manifestBytes = objectMapper.writeValueAsBytes(manifest);
+        
+        // Entries are compressed on worker threads into temp-file scatter streams and
+        // then gathered into the archive in submission order, so the manifest stays first
+        ExecutorService executor = Executors.newFixedThreadPool(compression.threads());
+        ParallelScatterZipCreator creator;
+        try {
+            creator = new ParallelScatterZipCreator(executor, new DefaultBackingStoreSupplier(null), compression.level());
+            
+            ZipArchiveEntry manifestEntry = new ZipArchiveEntry(MANIFEST_ENTRY);
+            manifestEntry.setMethod(ZipMethod.DEFLATED.getCode());
+            creator.addArchiveEntry(manifestEntry, () -> new ByteArrayInputStream(manifestBytes));
+            
+            for (Path path : files) {
+                creator.addArchiveEntry(() -> createEntryRequest(path, compression));
+            }
+            
+            // finish() rather than close(): the sink belongs to the storage backend
+            ZipArchiveOutputStream zos = new ZipArchiveOutputStream(out);
+            try {
+                creator.writeTo(zos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                IOException failure = new IOException("Interrupted while compressing snapshot", e);
+                finishAfterFailure(zos, failure);
+                throw failure;
+            } catch (ExecutionException e) {
+                IOException failure = new IOException("Failed to compress snapshot", e.getCause());
+                finishAfterFailure(zos, failure);
+                throw failure;
+            } catch (IOException | RuntimeException e) {
+                finishAfterFailure(zos, e);
+                throw e;
+            }
+            zos.finish();
+        } finally {
+            // writeTo only shuts the pool down once every entry has been gathered
+            executor.shutdownNow();
+        }
+        log.info("Snapshot archive written: {} entries, codec {}, level {}, {}",
+                files.size(), compression.codec(), compression.level(), creator.getStatisticsMessage());
+    }
+    
+    /**
+     * End the archive stream after a failed write without letting a second failure hide the first
+     */
+    private static void finishAfterFailure(ZipArchiveOutputStream zos, Exception failure) {
+        try {
+            zos.finish();
+        } catch (IOException | RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+    
+    /**
+     * Build the entry for a file on a worker thread, choosing STORED for entries
+     * that are small, already compressed or fail to shrink when probed
+     */
+    private ZipArchiveEntryRequest createEntryRequest(Path path, CompressionSettings compression) {
+        try {
+            ZipArchiveEntry entry = new ZipArchiveEntry(WireMockDirectory.entryName(path));
+            entry.setTime(Files.getLastModifiedTime(path).toMillis());
+            entry.setMethod(shouldStore(path, compression) ? ZipMethod.STORED.getCode() : ZipMethod.DEFLATED.getCode());
+            InputStreamSupplier payload = () -> {
+                try {
+                    return Files.newInputStream(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read " + path, e);
+                }
+            };
+            return ZipArchiveEntryRequest.createZipArchiveEntryRequest(entry, payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to add file to zip: " + path, e);
+        }
+    }
+    
+    private boolean shouldStore(Path path, CompressionSettings compression) throws IOException {
+        if (compression.codec() == CompressionSettings.Codec.STORED || compression.level() == Deflater.NO_COMPRESSION) {
+            return true;
+        }
+        if (Files.size(path) < compression.storeThresholdBytes()) {
+            return true;
+        }
+        String fileName = path.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        if (dot >= 0 && INCOMPRESSIBLE_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+            return true;
+        }
+        
+        byte[] probe;
+        try (InputStream in = Files.newInputStream(path)) {
+            probe = in.readNBytes(PROBE_BYTES);
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(probe);
+            deflater.finish();
+            byte[] buffer = new byte[PROBE_BYTES + 64];
+            int compressed = 0;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(buffer);
+            }
+            return compressed >= probe.length * MIN_COMPRESSION_RATIO;
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    /**
+     * Extract a snapshot archive into the WireMock directory. When the archive starts
+     * with a manifest, unchanged files are skipped and files missing from the archive are
+     * deleted. Content-addressed snapshots are resolved against the blob store.
+     */
+    public ExtractResult extractArchive(InputStream zipStream) throws IOException {
+        try (ZipInputStream zis = new ZipInputStream(zipStream)) {
+            ZipEntry entry = zis.getNextEntry();
+            if (entry != null && ContentAddressedSnapshotService.MANIFEST_ENTRY.equals(entry.getName())) {
+                return contentAddressedSnapshotService.restore(contentAddressedSnapshotService.readManifest(zis));
+            }
+            if (entry != null && MANIFEST_ENTRY.equals(entry.getName())) {
+                SnapshotManifest manifest = objectMapper.readValue(zis.readAllBytes(), SnapshotManifest.class);
+                return extractIncremental(zis, RestorePlan.forManifest(manifest));
+            }
+            return extractAll(zis, entry);
+        }
+    }
+    
+    private ExtractResult extractIncremental(ZipInputStream zis, RestorePlan plan) throws IOException {
+        ZipEntry entry;
+        while ((entry = zis.getNextEntry()) != null) {
+            if (entry.isDirectory() || plan.skipIfUnchanged(entry.getName())) {
+                continue;
+            }
+            Path outputPath = WireMockDirectory.resolve(entry.getName());
+            plan.beforeWrite(entry.getName(), outputPath);
+            Files.createDirectories(outputPath.getParent());
+            Files.copy(zis, outputPath, StandardCopyOption.REPLACE_EXISTING);
+            plan.afterWrite(outputPath);
+        }
+        plan.deleteRemoved();
+        
+        ExtractResult result = plan.toResult(0);
+        log.info("Incremental restore: {} files written, {} unchanged, {} deleted",
+                result.filesWritten(), result.filesUnchanged(), result.filesDeleted());
+        return result;
+    }
+    
+    /**
+     * Extract every entry of an archive without a manifest, as older snapshots were written
+     */
+    private ExtractResult extractAll(ZipInputStream zis, ZipEntry firstEntry) throws IOException {
+        int written = 0;
+        List<Path> changedMappingFiles = new ArrayList<>();
+        
+        for (ZipEntry entry = firstEntry; entry != null; entry = zis.getNextEntry()) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            Path outputPath = WireMockDirectory.resolve(entry.getName());
+            Files.createDirectories(outputPath.getParent());
+            Files.copy(zis, outputPath, StandardCopyOption.REPLACE_EXISTING);
+            written++;
+            if (WireMockDirectory.isMappingFile(outputPath)) {
+                changedMappingFiles.add(outputPath);
+            }
+        }
+        
+        return new ExtractResult(written, 0, 0, 0, false, changedMappingFiles, List.of());
+    }
+}
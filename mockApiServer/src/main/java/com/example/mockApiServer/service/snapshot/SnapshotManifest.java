@@ -0,0 +1,48 @@
+package com.example.mockApiServer.service.snapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Describes the files of a snapshot by path, content hash and size
+ */
+public record SnapshotManifest(int version, String createdAt, List<Entry> entries) {
+    
+    public static final int CURRENT_VERSION = 1;
+    
+    /**
+     * Hash the given files under the WireMock directory in parallel
+     */
+    public static SnapshotManifest describe(List<Path> files) {
+        List<Entry> entries = files.parallelStream()
+                .map(file -> {
+                    try {
+                        return new Entry(WireMockDirectory.entryName(file), ContentHash.sha256(file), Files.size(file));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to hash " + file, e);
+                    }
+                })
+                .collect(Collectors.toList());
+        return new SnapshotManifest(CURRENT_VERSION, LocalDateTime.now().toString(), entries);
+    }
+    
+    /**
+     * Entries keyed by path
+     */
+    public Map<String, Entry> byPath() {
+        return entries.stream().collect(Collectors.toMap(Entry::path, Function.identity(), (first, second) -> second));
+    }
+    
+    /**
+     * A single file, with its path relative to the WireMock root directory
+     */
+    public record Entry(String path, String sha256, long size) {
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.mockApiServer.service.snapshot;
+
+import com.example.mockApiServer.service.MappingImportService;
+import com.example.mockApiServer.service.storage.StorageService;
+import com.example.mockApiServer.wiremock.MappedBodyStore;
+import com.example.mockApiServer.wiremock.SwappableStubMappingStore;
+import com.github.tomakehurst.wiremock.common.Json;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Loads snapshots as named sets served next to the live stub set, so several versions of a mocked
+ * API can be answered by one process. A set is read straight from the storage backend without
+ * touching the WireMock directory: mappings stay in memory and body files are stored by content
+ * hash under {@code __files/.sets}, so a body that several versions share is kept, fetched and
+ * page-cached once. Sets live for the lifetime of the process.
+ */
+@Service
+public class SnapshotSetService {
+    
+    private static final Logger log = LoggerFactory.getLogger(SnapshotSetService.class);
+    private static final String MAPPINGS_PREFIX = "mappings/";
+    private static final String FILES_PREFIX = "__files/";
+    
+    private final StorageService storageService;
+    private final ContentAddressedSnapshotService contentAddressedSnapshotService;
+    private final MappingImportService mappingImportService;
+    private final SwappableStubMappingStore stubMappingStore;
+    private final MappedBodyStore bodyStore;
+    // Body file keys each set references, so unloading a set removes only bodies no other set uses
+    private final Map<String, Set<String>> setBodies = new ConcurrentHashMap<>();
+    
+    public SnapshotSetService(StorageService storageService,
+                              ContentAddressedSnapshotService contentAddressedSnapshotService,
+                              MappingImportService mappingImportService,
+                              SwappableStubMappingStore stubMappingStore,
+                              MappedBodyStore bodyStore,
+                              MeterRegistry meterRegistry) throws IOException {
+        this.storageService = storageService;
+        this.contentAddressedSnapshotService = contentAddressedSnapshotService;
+        this.mappingImportService = mappingImportService;
+        this.stubMappingStore = stubMappingStore;
+        this.bodyStore = bodyStore;
+        // Sets are not kept across restarts, so bodies left by a previous run are unreferenced
+        bodyStore.clearShared();
+        Gauge.builder("wiremock.snapshot.sets", setBodies, Map::size)
+                .description("Snapshot sets loaded next to the live stub set")
+                .register(meterRegistry);
+        FunctionCounter.builder("wiremock.body-store.shared", bodyStore, MappedBodyStore::getSharedBodyCount)
+                .description("Inline response bodies replaced by an identical body held by another stub")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Load a snapshot from the storage backend as a named set, replacing any set of that name
+     */
+    public synchronized LoadResult load(String set, String snapshot) throws IOException {
+        long start = System.nanoTime();
+        long sharedBefore = bodyStore.getSharedBodyCount();
+        // Bodies this load stores, which nothing references until the set is swapped in
+        Set<String> written = new HashSet<>();
+        Contents contents;
+        int loaded;
+        try {
+            try (InputStream in = storageService.openSnapshot(snapshot);
+                 ZipInputStream zis = new ZipInputStream(in)) {
+                ZipEntry entry = zis.getNextEntry();
+                if (entry != null && ContentAddressedSnapshotService.MANIFEST_ENTRY.equals(entry.getName())) {
+                    contents = readManifest(contentAddressedSnapshotService.readManifest(zis), written);
+                } else {
+                    contents = readArchive(zis, entry, written);
+                }
+            }
+            
+            List<StubMapping> mappings = new ArrayList<>(contents.mappings().size());
+            for (StubMapping mapping : contents.mappings()) {
+                mappings.add(withSharedBodyFile(mapping, contents.bodyFiles()));
+            }
+            loaded = mappingImportService.loadSet(set, mappings);
+        } catch (IOException | RuntimeException e) {
+            // Any set of this name is still the one served, so keep only the bodies a loaded set uses
+            removeUnreferenced(written);
+            throw e;
+        }
+        Set<String> previous = setBodies.put(set, new HashSet<>(contents.bodyFiles().values()));
+        if (previous != null) {
+            removeUnreferenced(previous);
+        }
+        
+        LoadResult result = new LoadResult(set, snapshot, loaded, contents.bodyFiles().size(),
+                contents.reusedBodyFiles(), bodyStore.getSharedBodyCount() - sharedBefore,
+                (System.nanoTime() - start) / 1_000_000);
+        log.info("Loaded snapshot {} as set {}: {} mappings, {} body files ({} already stored), {} inline bodies shared in {} ms",
+                snapshot, set, result.mappings(), result.bodyFiles(), result.reusedBodyFiles(),
+                result.sharedBodies(), result.loadMillis());
+        return result;
+    }
+    
+    /**
+     * Stop serving a set and delete the body files only it referenced
+     * @return Whether the set was loaded
+     */
+    public synchronized boolean unload(String set) {
+        if (!mappingImportService.unloadSet(set)) {
+            return false;
+        }
+        Set<String> bodies = setBodies.remove(set);
+        if (bodies != null) {
+            removeUnreferenced(bodies);
+        }
+        log.info("Unloaded snapshot set {}", set);
+        return true;
+    }
+    
+    /**
+     * Loaded sets by name, with their number of stubs
+     */
+    public Map<String, Long> list() {
+        return stubMappingStore.getSetSizes();
+    }
+    
+    private Contents readManifest(SnapshotManifest manifest, Set<String> written) throws IOException {
+        List<StubMapping> mappings = new ArrayList<>();
+        Map<String, String> bodyFiles = new HashMap<>();
+        int reused = 0;
+        for (SnapshotManifest.Entry entry : manifest.entries()) {
+            if (isMappingEntry(entry.path())) {
+                try (InputStream in = storageService.openBlob(entry.sha256())) {
+                    mappings.add(StubMapping.buildFrom(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+                }
+            } else if (entry.path().startsWith(FILES_PREFIX)) {
+                // Blobs are named by their hash, so a body stored for another set needs no download
+                String key = bodyStore.sharedKey(entry.sha256());
+                if (bodyStore.contains(key)) {
+                    reused++;
+                } else {
+                    String stored;
+                    try (InputStream in = storageService.openBlob(entry.sha256())) {
+                        stored = bodyStore.putShared(in);
+                    }
+                    written.add(stored);
+                    if (!stored.equals(key)) {
+                        throw new IOException("Blob " + entry.sha256() + " failed verification");
+                    }
+                }
+                bodyFiles.put(entry.path().substring(FILES_PREFIX.length()), key);
+            }
+        }
+        return new Contents(mappings, bodyFiles, reused);
+    }
+    
+    private Contents readArchive(ZipInputStream zis, ZipEntry firstEntry, Set<String> written) throws IOException {
+        List<StubMapping> mappings = new ArrayList<>();
+        Map<String, String> bodyFiles = new HashMap<>();
+        int reused = 0;
+        for (ZipEntry entry = firstEntry; entry != null; entry = zis.getNextEntry()) {
+            String name = entry.getName();
+            if (entry.isDirectory() || SnapshotArchiveService.MANIFEST_ENTRY.equals(name)) {
+                continue;
+            }
+            // Rejects entries that escape the WireMock directory, as a restore would
+            WireMockDirectory.resolve(name);
+            if (isMappingEntry(name)) {
+                mappings.add(StubMapping.buildFrom(new String(zis.readAllBytes(), StandardCharsets.UTF_8)));
+            } else if (name.startsWith(FILES_PREFIX)) {
+                // The hash is only known once the body is read, so archive bodies are always streamed
+                String key = bodyStore.putShared(zis);
+                written.add(key);
+                if (bodyFiles.containsValue(key) || setBodies.values().stream().anyMatch(keys -> keys.contains(key))) {
+                    reused++;
+                }
+                bodyFiles.put(name.substring(FILES_PREFIX.length()), key);
+            }
+        }
+        return new Contents(mappings, bodyFiles, reused);
+    }
+    
+    private static boolean isMappingEntry(String name) {
+        return name.startsWith(MAPPINGS_PREFIX) && name.endsWith(".json")
+                && name.indexOf('/', MAPPINGS_PREFIX.length()) < 0;
+    }
+    
+    /**
+     * Point a stub's body file at the set's shared copy of it
+     */
+    private static StubMapping withSharedBodyFile(StubMapping mapping, Map<String, String> bodyFiles) {
+        ResponseDefinition response = mapping.getResponse();
+        String bodyFileName = response != null ? response.getBodyFileName() : null;
+        String key = bodyFileName != null ? bodyFiles.get(bodyFileName.replace("\\", "/")) : null;
+        if (key == null) {
+            return mapping;
+        }
+        Map<String, Object> definition = Json.objectToMap(response);
+        definition.put("bodyFileName", key);
+        mapping.setResponse(Json.mapToObject(definition, ResponseDefinition.class));
+        return mapping;
+    }
+    
+    private void removeUnreferenced(Set<String> bodies) {
+        Set<String> referenced = new HashSet<>();
+        setBodies.values().forEach(referenced::addAll);
+        for (String key : bodies) {
+            if (!referenced.contains(key)) {
+                bodyStore.remove(key);
+            }
+        }
+    }
+    
+    /**
+     * Mappings of a snapshot and the shared key of each body file, by path under {@code __files}
+     */
+    private record Contents(List<StubMapping> mappings, Map<String, String> bodyFiles, int reusedBodyFiles) {
+    }
+    
+    public record LoadResult(String set, String snapshot, int mappings, int bodyFiles, int reusedBodyFiles,
+                             long sharedBodies, long loadMillis) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.mockApiServer.service.snapshot;
+
+import com.example.mockApiServer.wiremock.MappedBodyStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Layout of the WireMock root directory as captured in snapshots
+ */
+public final class WireMockDirectory {
+    
+    public static final Path ROOT = Paths.get("./wiremock").normalize();
+    
+    /**
+     * Subdirectories of the root that make up a snapshot
+     */
+    public static final List<String> SNAPSHOT_DIRECTORIES = List.of("mappings", "__files");
+    
+    /**
+     * Body files of loaded snapshot sets, which belong to the running server rather than a snapshot
+     */
+    private static final Path SNAPSHOT_SETS = ROOT.resolve("__files").resolve(MappedBodyStore.SHARED_DIRECTORY);
+    
+    /**
+     * Inline response bodies the running server moved out of its stubs, named by content hash
+     */
+    private static final Path OFFLOADED_BODIES = ROOT.resolve("__files").resolve(MappedBodyStore.OFFLOAD_DIRECTORY);
+    
+    private WireMockDirectory() {
+    }
+    
+    /**
+     * List all regular files that belong in a snapshot, leaving out snapshot set bodies
+     */
+    public static List<Path> listSnapshotFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String directory : SNAPSHOT_DIRECTORIES) {
+            Path sourceDir = ROOT.resolve(directory);
+            if (!Files.exists(sourceDir)) {
+                continue;
+            }
+            try (Stream<Path> paths = Files.walk(sourceDir)) {
+                files.addAll(paths.filter(Files::isRegularFile)
+                        .filter(path -> !path.normalize().startsWith(SNAPSHOT_SETS))
+                        .sorted().collect(Collectors.toList()));
+            }
+        }
+        return files;
+    }
+    
+    /**
+     * Whether the path is a mapping file that WireMock registers, i.e. a top-level *.json under mappings
+     */
+    public static boolean isMappingFile(Path path) {
+        Path normalized = path.normalize();
+        return ROOT.resolve("mappings").equals(normalized.getParent())
+                && normalized.getFileName().toString().endsWith(".json");
+    }
+    
+    /**
+     * Whether the path is an offloaded response body. Stubs that survive a restore may still point
+     * at one, so a restore never deletes them even when the snapshot does not contain them.
+     */
+    public static boolean isOffloadedBody(Path path) {
+        return path.normalize().startsWith(OFFLOADED_BODIES);
+    }
+    
+    /**
+     * Snapshot entry name of a file under the root, always using forward slashes
+     */
+    public static String entryName(Path file) {
+        return ROOT.relativize(file.normalize()).toString().replace("\\", "/");
+    }
+    
+    /**
+     * Resolve a snapshot entry name to a path, rejecting names that escape the root
+     */
+    public static Path resolve(String entryName) throws IOException {
+        Path path = ROOT.resolve(entryName).normalize();
+        if (!path.startsWith(ROOT) || path.equals(ROOT)) {
+            throw new IOException("Snapshot entry outside the WireMock directory: " + entryName);
+        }
+        return path;
+    }
+}
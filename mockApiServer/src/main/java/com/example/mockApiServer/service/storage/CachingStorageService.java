@@ -0,0 +1,451 @@
+package com.example.mockApiServer.service.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Storage decorator that keeps downloaded snapshots and blobs in a size-bounded on-disk LRU cache.
+ * Snapshots are revalidated against the backend revision (ETag, SHA or checksum) before a cached
+ * copy is served; blobs are content-addressed and never change, so a cached copy is always valid.
+ * A miss streams straight from the backend and fills the cache as the caller reads.
+ */
+public class CachingStorageService implements StorageService {
+    
+    private static final Logger log = LoggerFactory.getLogger(CachingStorageService.class);
+    private static final String REVISION_SUFFIX = ".revision";
+    private static final String TEMP_SUFFIX = ".tmp";
+    
+    private final StorageService delegate;
+    private final Path snapshotDirectory;
+    private final Path blobDirectory;
+    private final long maxBytes;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Path, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    
+    public CachingStorageService(StorageService delegate, Path directory, long maxBytes,
+                                 MeterRegistry meterRegistry) throws IOException {
+        this.delegate = delegate;
+        this.snapshotDirectory = directory.resolve("snapshots");
+        this.blobDirectory = directory.resolve("blobs");
+        this.maxBytes = maxBytes;
+        this.hits = Counter.builder("wiremock.storage.cache.requests")
+                .description("Snapshot and blob reads served by the storage cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("wiremock.storage.cache.requests")
+                .description("Snapshot and blob reads served by the storage cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("wiremock.storage.cache.evictions")
+                .description("Entries evicted from the storage cache to stay within its size limit")
+                .register(meterRegistry);
+        Gauge.builder("wiremock.storage.cache.size", this, CachingStorageService::getCachedBytes)
+                .description("Bytes held in the storage cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        
+        Files.createDirectories(snapshotDirectory);
+        Files.createDirectories(blobDirectory);
+        loadExistingEntries();
+        log.info("Storage cache initialized at: {} ({} entries, {} of {} bytes)",
+                directory.toAbsolutePath(), entries.size(), cachedBytes, maxBytes);
+    }
+    
+    @Override
+    public void saveSnapshot(String name, byte[] data) throws IOException {
+        delegate.saveSnapshot(name, data);
+        invalidate(snapshotPath(name));
+    }
+    
+    @Override
+    public void saveSnapshot(String name, SnapshotWriter writer) throws IOException {
+        delegate.saveSnapshot(name, writer);
+        invalidate(snapshotPath(name));
+    }
+    
+    @Override
+    public InputStream openSnapshot(String name) throws IOException {
+        return openSnapshotWithRevision(name).content();
+    }
+    
+    @Override
+    public RevisionedStream openSnapshotWithRevision(String name) throws IOException {
+        Path cachePath = snapshotPath(name);
+        String revision = delegate.snapshotRevision(name);
+        if (revision != null) {
+            InputStream cached = openCached(cachePath, revision);
+            if (cached != null) {
+                hits.increment();
+                log.info("Serving snapshot {} from cache (revision {})", name, revision);
+                return new RevisionedStream(cached, revision);
+            }
+        }
+        
+        misses.increment();
+        // Cache what the download turns out to be, which may be newer than the revision just checked
+        RevisionedStream download = delegate.openSnapshotWithRevision(name);
+        if (download.revision() == null) {
+            // Without a revision the cached copy cannot be validated
+            invalidate(cachePath);
+            return download;
+        }
+        log.info("Caching snapshot {} (revision {})", name, download.revision());
+        return new RevisionedStream(fetch(cachePath, download.revision(), download.content()), download.revision());
+    }
+    
+    @Override
+    public List<String> listSnapshots() throws IOException {
+        return delegate.listSnapshots();
+    }
+    
+    @Override
+    public boolean deleteSnapshot(String name) throws IOException {
+        invalidate(snapshotPath(name));
+        return delegate.deleteSnapshot(name);
+    }
+    
+    @Override
+    public boolean snapshotExists(String name) throws IOException {
+        return delegate.snapshotExists(name);
+    }
+    
+    @Override
+    public String snapshotRevision(String name) throws IOException {
+        return delegate.snapshotRevision(name);
+    }
+    
+    @Override
+    public boolean blobExists(String hash) throws IOException {
+        synchronized (this) {
+            if (entries.containsKey(blobPath(hash))) {
+                return true;
+            }
+        }
+        return delegate.blobExists(hash);
+    }
+    
+    @Override
+    public void saveBlob(String hash, SnapshotWriter writer) throws IOException {
+        delegate.saveBlob(hash, writer);
+    }
+    
+    @Override
+    public void saveBlobs(Map<String, SnapshotWriter> blobs) throws IOException {
+        delegate.saveBlobs(blobs);
+    }
+    
+    @Override
+    public InputStream openBlob(String hash) throws IOException {
+        Path cachePath = blobPath(hash);
+        InputStream cached = openCached(cachePath, null);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        
+        misses.increment();
+        return fetch(cachePath, null, delegate.openBlob(hash));
+    }
+    
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+    
+    /**
+     * Open a cached entry if it is present and matches the expected revision, or return null
+     */
+    private InputStream openCached(Path cachePath, String revision) throws IOException {
+        synchronized (this) {
+            CacheEntry entry = entries.get(cachePath);
+            if (entry == null || (revision != null && !revision.equals(entry.revision()))) {
+                return null;
+            }
+        }
+        try {
+            return new BufferedInputStream(Files.newInputStream(cachePath));
+        } catch (NoSuchFileException e) {
+            // Evicted between the lookup and the open
+            return null;
+        }
+    }
+    
+    /**
+     * Stream an entry from the backend while copying it into the cache
+     */
+    private InputStream fetch(Path cachePath, String revision, InputStream remote) throws IOException {
+        try {
+            Path tempPath = Files.createTempFile(cachePath.getParent(), "fetch-", TEMP_SUFFIX);
+            return new BufferedInputStream(new CachingInputStream(remote, cachePath, tempPath, revision));
+        } catch (IOException | RuntimeException e) {
+            remote.close();
+            throw e;
+        }
+    }
+    
+    private synchronized void admit(Path cachePath, CacheEntry entry) throws IOException {
+        CacheEntry previous = entries.put(cachePath, entry);
+        if (previous != null) {
+            cachedBytes -= previous.size();
+        }
+        cachedBytes += entry.size();
+        
+        Iterator<Map.Entry<Path, CacheEntry>> eldest = entries.entrySet().iterator();
+        while (cachedBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Path, CacheEntry> candidate = eldest.next();
+            if (candidate.getKey().equals(cachePath)) {
+                continue;
+            }
+            eldest.remove();
+            cachedBytes -= candidate.getValue().size();
+            deleteFiles(candidate.getKey());
+            evictions.increment();
+            log.debug("Evicted {} from storage cache", candidate.getKey().getFileName());
+        }
+    }
+    
+    private synchronized void invalidate(Path cachePath) throws IOException {
+        CacheEntry removed = entries.remove(cachePath);
+        if (removed != null) {
+            cachedBytes -= removed.size();
+        }
+        deleteFiles(cachePath);
+    }
+    
+    /**
+     * Rebuild the index from a previous run, oldest files first so they are evicted first
+     */
+    private void loadExistingEntries() throws IOException {
+        List<Path> files;
+        try (Stream<Path> snapshots = Files.list(snapshotDirectory); Stream<Path> blobs = Files.list(blobDirectory)) {
+            files = Stream.concat(snapshots, blobs)
+                    .filter(Files::isRegularFile)
+                    .collect(Collectors.toList());
+        }
+        
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            if (fileName.endsWith(TEMP_SUFFIX)) {
+                Files.deleteIfExists(file);
+            }
+        }
+        
+        List<Path> cached = files.stream()
+                .filter(file -> !file.getFileName().toString().endsWith(TEMP_SUFFIX))
+                .filter(file -> !file.getFileName().toString().endsWith(REVISION_SUFFIX))
+                .sorted(Comparator.comparing(CachingStorageService::lastModified))
+                .collect(Collectors.toList());
+        
+        for (Path file : cached) {
+            String revision = null;
+            if (file.startsWith(snapshotDirectory)) {
+                Path revisionPath = revisionPath(file);
+                if (!Files.exists(revisionPath)) {
+                    Files.delete(file);
+                    continue;
+                }
+                revision = Files.readString(revisionPath);
+            }
+            admit(file, new CacheEntry(Files.size(file), revision));
+        }
+    }
+    
+    private Path snapshotPath(String name) {
+        return snapshotDirectory.resolve(URLEncoder.encode(name, StandardCharsets.UTF_8) + ".zip");
+    }
+    
+    private Path blobPath(String hash) {
+        return blobDirectory.resolve(URLEncoder.encode(hash, StandardCharsets.UTF_8));
+    }
+    
+    private static Path revisionPath(Path cachePath) {
+        return cachePath.resolveSibling(cachePath.getFileName() + REVISION_SUFFIX);
+    }
+    
+    private static void deleteFiles(Path cachePath) throws IOException {
+        Files.deleteIfExists(cachePath);
+        Files.deleteIfExists(revisionPath(cachePath));
+    }
+    
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+    
+    /**
+     * Hands the backend stream to the caller and copies every byte read into a temporary file. The
+     * copy is admitted to the cache only once the backend stream has been read to its end, so a
+     * failed or abandoned download leaves nothing behind; one that outgrows the cache is not kept.
+     */
+    private class CachingInputStream extends FilterInputStream {
+        
+        private final Path cachePath;
+        private final Path tempPath;
+        private final String revision;
+        private OutputStream copy;
+        private long size;
+        private boolean complete;
+        
+        CachingInputStream(InputStream remote, Path cachePath, Path tempPath, String revision) throws IOException {
+            super(remote);
+            this.cachePath = cachePath;
+            this.tempPath = tempPath;
+            this.revision = revision;
+            try {
+                this.copy = new BufferedOutputStream(Files.newOutputStream(tempPath));
+            } catch (IOException e) {
+                Files.deleteIfExists(tempPath);
+                throw e;
+            }
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read;
+            try {
+                read = in.read(buffer, offset, length);
+            } catch (IOException e) {
+                discard();
+                throw e;
+            }
+            if (read < 0) {
+                complete = true;
+            } else {
+                copy(buffer, offset, read);
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes still belong in the copy
+            int read = read(new byte[(int) Math.min(Math.max(n, 0), 8192)]);
+            return Math.max(read, 0);
+        }
+        
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+        
+        @Override
+        public void mark(int readLimit) {
+        }
+        
+        @Override
+        public void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                // Readers such as ZipInputStream stop before the end of the stream; the rest still belongs in the copy
+                byte[] buffer = new byte[8192];
+                while (copy != null && !complete) {
+                    read(buffer, 0, buffer.length);
+                }
+            } catch (IOException e) {
+                log.warn("Not caching {}: download failed before the end: {}", cachePath.getFileName(), e.getMessage());
+            } finally {
+                try {
+                    in.close();
+                } finally {
+                    commit();
+                }
+            }
+        }
+        
+        private void copy(byte[] buffer, int offset, int length) throws IOException {
+            if (copy == null) {
+                return;
+            }
+            if (size + length > maxBytes) {
+                // Too large to keep, so serve the download once and drop the copy
+                log.warn("Not caching {}: larger than the cache size of {} bytes", cachePath.getFileName(), maxBytes);
+                discard();
+                return;
+            }
+            try {
+                copy.write(buffer, offset, length);
+                size += length;
+            } catch (IOException e) {
+                // The caller's read succeeded; only the copy is lost
+                log.warn("Not caching {}: {}", cachePath.getFileName(), e.getMessage());
+                discard();
+            }
+        }
+        
+        private void commit() throws IOException {
+            if (copy == null || !complete) {
+                return;
+            }
+            try {
+                copy.close();
+                copy = null;
+                if (revision != null) {
+                    Files.writeString(revisionPath(cachePath), revision);
+                }
+                Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                admit(cachePath, new CacheEntry(size, revision));
+            } catch (IOException e) {
+                log.warn("Failed to cache {}: {}", cachePath.getFileName(), e.getMessage());
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        }
+        
+        private void discard() throws IOException {
+            if (copy == null) {
+                return;
+            }
+            try {
+                copy.close();
+            } catch (IOException e) {
+                log.debug("Failed to close cache copy of {}", cachePath.getFileName(), e);
+            }
+            copy = null;
+            Files.deleteIfExists(tempPath);
+        }
+    }
+    
+    private record CacheEntry(long size, String revision) {
+    }
+}
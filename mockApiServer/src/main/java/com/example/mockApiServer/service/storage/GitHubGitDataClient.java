@@ -0,0 +1,209 @@
+package com.example.mockApiServer.service.storage;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Minimal client for GitHub's Git Data API (blobs, trees, commits and refs). Unlike the contents
+ * API it has no 1 MB file limit, lets one commit carry any number of files, and a blob upload is
+ * base64-encoded as it is written into the request body, so the content is never held in memory.
+ * Directories are listed as trees, fetched conditionally so an unchanged listing costs no rate limit.
+ */
+public class GitHubGitDataClient {
+    
+    private static final Logger log = LoggerFactory.getLogger(GitHubGitDataClient.class);
+    private static final String FILE_MODE = "100644";
+    private static final int REF_UPDATE_ATTEMPTS = 3;
+    private static final byte[] BLOB_PREFIX = "{\"encoding\":\"base64\",\"content\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BLOB_SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+    
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final String repositoryUrl;
+    private final String token;
+    
+    /**
+     * @param apiUrl GitHub API root, e.g. https://api.github.com
+     * @param repository Repository as owner/name
+     */
+    public GitHubGitDataClient(String apiUrl, String repository, String token, ObjectMapper objectMapper) {
+        // The JDK client streams request bodies of unknown length and, unlike HttpURLConnection, supports PATCH.
+        // HTTP/1.1 keeps blob uploads chunked; an h2c upgrade cancels a streamed POST on servers that offer it.
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        this.restTemplate = new RestTemplate(new JdkClientHttpRequestFactory(httpClient));
+        this.objectMapper = objectMapper;
+        this.repositoryUrl = apiUrl.replaceAll("/+$", "") + "/repos/" + repository;
+        this.token = token;
+    }
+    
+    /**
+     * Result of a conditional directory listing
+     * @param notModified Whether the listing still matches the ETag sent, in which case entries is null
+     * @param entries The directory's tree entries, empty when the directory does not exist
+     * @param truncated Whether GitHub left entries out because the tree exceeds its response limit
+     */
+    public record Listing(boolean notModified, String etag, JsonNode entries, boolean truncated) {
+    }
+    
+    /**
+     * List a directory on a branch as a git tree, revalidating a previous listing. Unlike the
+     * contents API, which stops at 1000 entries, a tree lists up to 100,000.
+     * @param etag ETag of the listing held by the caller, or null to fetch unconditionally
+     */
+    public Listing listDirectory(String directory, String branch, String etag) throws IOException {
+        String url = repositoryUrl + "/git/trees/" + branch + ":" + directory;
+        try {
+            return restTemplate.execute(url, HttpMethod.GET, request -> {
+                authorize(request.getHeaders());
+                if (etag != null) {
+                    request.getHeaders().setIfNoneMatch(etag);
+                }
+            }, response -> {
+                if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                    return new Listing(true, etag, null, false);
+                }
+                JsonNode tree = objectMapper.readTree(response.getBody());
+                return new Listing(false, response.getHeaders().getETag(), tree.path("tree"), tree.path("truncated").asBoolean());
+            });
+        } catch (HttpClientErrorException.NotFound | HttpClientErrorException.Conflict e) {
+            // A missing directory or branch, or a repository with no commits yet
+            return new Listing(false, null, objectMapper.createArrayNode(), false);
+        } catch (RestClientException e) {
+            throw new IOException("Failed to list GitHub directory " + directory + ": " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Upload content as a git blob
+     * @return The blob SHA
+     */
+    public String createBlob(SnapshotWriter writer) throws IOException {
+        try {
+            JsonNode blob = send(HttpMethod.POST, "/git/blobs", out -> {
+                out.write(BLOB_PREFIX);
+                // Closing the encoder writes the final padding but must leave the request body open
+                try (OutputStream encoder = Base64.getEncoder().wrap(CloseShieldOutputStream.wrap(out))) {
+                    writer.writeTo(encoder);
+                }
+                out.write(BLOB_SUFFIX);
+            });
+            return blob.path("sha").asText();
+        } catch (RestClientException e) {
+            throw new IOException("Failed to create GitHub blob: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Commit file changes to a branch as a single commit on top of its current head
+     * @param files Repository path to blob SHA; a null SHA deletes the path
+     * @return The new commit SHA
+     */
+    public String commit(String branch, Map<String, String> files, String message) throws IOException {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                String parent = branchHead(branch);
+                String commit = createCommit(parent, files, message);
+                try {
+                    if (parent == null) {
+                        ObjectNode ref = objectMapper.createObjectNode()
+                                .put("ref", "refs/heads/" + branch)
+                                .put("sha", commit);
+                        send(HttpMethod.POST, "/git/refs", json(ref));
+                    } else {
+                        ObjectNode ref = objectMapper.createObjectNode()
+                                .put("sha", commit)
+                                .put("force", false);
+                        send(HttpMethod.PATCH, "/git/refs/heads/" + branch, json(ref));
+                    }
+                    return commit;
+                } catch (HttpClientErrorException e) {
+                    // Another commit moved the branch in between: rebuild on top of the new head
+                    if (e.getStatusCode() != HttpStatus.UNPROCESSABLE_ENTITY || attempt == REF_UPDATE_ATTEMPTS) {
+                        throw e;
+                    }
+                    log.debug("Branch {} moved during commit, retrying (attempt {})", branch, attempt);
+                }
+            }
+        } catch (RestClientException e) {
+            throw new IOException("Failed to commit to GitHub branch " + branch + ": " + e.getMessage(), e);
+        }
+    }
+    
+    private String branchHead(String branch) {
+        try {
+            return send(HttpMethod.GET, "/git/ref/heads/" + branch, null).path("object").path("sha").asText();
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
+    }
+    
+    private String createCommit(String parent, Map<String, String> files, String message) {
+        ObjectNode tree = objectMapper.createObjectNode();
+        if (parent != null) {
+            String baseTree = send(HttpMethod.GET, "/git/commits/" + parent, null).path("tree").path("sha").asText();
+            tree.put("base_tree", baseTree);
+        }
+        ArrayNode entries = tree.putArray("tree");
+        files.forEach((path, sha) -> entries.addObject()
+                .put("path", path)
+                .put("mode", FILE_MODE)
+                .put("type", "blob")
+                .put("sha", sha));
+        String treeSha = send(HttpMethod.POST, "/git/trees", json(tree)).path("sha").asText();
+        
+        ObjectNode commit = objectMapper.createObjectNode()
+                .put("message", message)
+                .put("tree", treeSha);
+        ArrayNode parents = commit.putArray("parents");
+        if (parent != null) {
+            parents.add(parent);
+        }
+        return send(HttpMethod.POST, "/git/commits", json(commit)).path("sha").asText();
+    }
+    
+    private SnapshotWriter json(JsonNode body) {
+        return out -> out.write(objectMapper.writeValueAsBytes(body));
+    }
+    
+    private JsonNode send(HttpMethod method, String path, SnapshotWriter body) {
+        return restTemplate.execute(repositoryUrl + path, method, request -> {
+            authorize(request.getHeaders());
+            if (body == null) {
+                return;
+            }
+            request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            if (request instanceof StreamingHttpOutputMessage streamingRequest) {
+                streamingRequest.setBody(body::writeTo);
+            } else {
+                body.writeTo(request.getBody());
+            }
+        }, response -> objectMapper.readTree(response.getBody()));
+    }
+    
+    private void authorize(HttpHeaders headers) {
+        headers.setBearerAuth(token);
+        headers.set("Accept", "application/vnd.github+json");
+        headers.set("X-GitHub-Api-Version", "2022-11-28");
+    }
+}
@@ -1,18 +1,36 @@
 package com.example.mockApiServer.service.storage;
 
 import com.example.mockApiServer.config.StorageConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.kohsuke.github.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.Base64;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
+/**
+ * Stores snapshots in a GitHub repository. Writes go through the Git Data API so files of any size
+ * are uploaded as streamed blobs and several files can land in one commit; reads fetch blobs raw.
+ * The repository handle is fetched once and directory listings are cached, revalidated with
+ * If-None-Match on each use (a 304 does not count against the rate limit) and dropped when this
+ * service commits to the directory.
+ */
 @Service
 @ConditionalOnProperty(name = "storage.type", havingValue = "GITHUB")
 public class GitHubStorageService implements StorageService {
@@ -20,8 +38,15 @@ public class GitHubStorageService implements StorageService {
     private static final Logger log = LoggerFactory.getLogger(GitHubStorageService.class);
     private final StorageConfig.GitHubConfig config;
     private final GitHub gitHub;
+    private final GitHubGitDataClient gitData;
+    private final Map<String, CachedListing> listings = new ConcurrentHashMap<>();
+    private final Counter listingsFetched;
+    private final Counter listingsNotModified;
+    private final Counter repositoryLookupsSaved;
+    private volatile GHRepository repository;
     
-    public GitHubStorageService(StorageConfig storageConfig) throws IOException {
+    public GitHubStorageService(StorageConfig storageConfig, ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry) throws IOException {
         this.config = storageConfig.getGithub();
         
         if (config.getToken() == null || config.getToken().isEmpty()) {
@@ -32,97 +57,182 @@ public class GitHubStorageService implements StorageService {
             throw new IllegalStateException("GitHub repository is required for GITHUB storage type");
         }
         
-        this.gitHub = new GitHubBuilder().withOAuthToken(config.getToken()).build();
+        this.gitHub = new GitHubBuilder()
+                .withEndpoint(config.getApiUrl())
+                .withOAuthToken(config.getToken())
+                .build();
+        this.gitData = new GitHubGitDataClient(config.getApiUrl(), config.getRepository(), config.getToken(), objectMapper);
+        this.listingsFetched = Counter.builder("wiremock.storage.github.listings")
+                .description("GitHub directory listings, by whether the cached copy was still current")
+                .tag("result", "fetched")
+                .register(meterRegistry);
+        this.listingsNotModified = Counter.builder("wiremock.storage.github.listings")
+                .description("GitHub directory listings, by whether the cached copy was still current")
+                .tag("result", "not-modified")
+                .register(meterRegistry);
+        this.repositoryLookupsSaved = Counter.builder("wiremock.storage.github.calls.saved")
+                .description("GitHub API calls avoided by reusing the cached repository handle")
+                .tag("call", "repository")
+                .register(meterRegistry);
         log.info("GitHub storage initialized for repository: {}", config.getRepository());
     }
     
     @Override
-    public void saveSnapshot(String name, byte[] data) throws IOException {
-        GHRepository repository = gitHub.getRepository(config.getRepository());
-        String path = config.getBaseDir() + "/" + name + ".zip";
-        
-        try {
-            // Try to get existing file to update it
-            GHContent existingFile = repository.getFileContent(path, config.getBranch());
-            existingFile.update(data, "Update WireMock snapshot: " + name, config.getBranch());
-            log.info("Updated GitHub snapshot: {}", name);
-        } catch (GHFileNotFoundException e) {
-            // File doesn't exist, create new one
-            repository.createContent()
-                    .content(data)
-                    .message("Add WireMock snapshot: " + name)
-                    .branch(config.getBranch())
-                    .path(path)
-                    .commit();
-            log.info("Created GitHub snapshot: {}", name);
-        }
+    public void saveSnapshot(String name, SnapshotWriter writer) throws IOException {
+        String blob = gitData.createBlob(writer);
+        commit(Map.of(getSnapshotPath(name), blob), "Save WireMock snapshot: " + name);
+        log.info("Saved GitHub snapshot: {}", name);
     }
     
     @Override
-    public byte[] loadSnapshot(String name) throws IOException {
-        GHRepository repository = gitHub.getRepository(config.getRepository());
-        String path = config.getBaseDir() + "/" + name + ".zip";
+    public InputStream openSnapshot(String name) throws IOException {
+        return openSnapshotWithRevision(name).content();
+    }
+    
+    @Override
+    public RevisionedStream openSnapshotWithRevision(String name) throws IOException {
+        DirectoryEntry entry = findEntry(config.getBaseDir(), name + ".zip")
+                .orElseThrow(() -> new FileNotFoundException("Snapshot not found in GitHub: " + name));
         
-        try {
-            GHContent content = repository.getFileContent(path, config.getBranch());
-            
-            // GitHub API returns base64 encoded content
-            if (content.isFile()) {
-                String encodedContent = content.getContent();
-                byte[] decodedContent = Base64.getMimeDecoder().decode(encodedContent.replaceAll("\\s", ""));
-                log.info("Loaded GitHub snapshot: {}", name);
-                return decodedContent;
-            } else {
-                throw new IOException("Path is not a file: " + path);
-            }
-        } catch (GHFileNotFoundException e) {
-            throw new IOException("Snapshot not found in GitHub: " + name, e);
-        }
+        log.info("Streaming GitHub snapshot: {} ({} bytes)", name, entry.size());
+        // The blob is read by its SHA, so that SHA is the revision of exactly what is streamed
+        return new RevisionedStream(new BufferedInputStream(repository().readBlob(entry.sha())), entry.sha());
+    }
+    
+    @Override
+    public String snapshotRevision(String name) throws IOException {
+        return findEntry(config.getBaseDir(), name + ".zip").map(DirectoryEntry::sha).orElse(null);
     }
     
     @Override
     public List<String> listSnapshots() throws IOException {
-        try {
-            GHRepository repository = gitHub.getRepository(config.getRepository());
-            List<GHContent> contents = repository.getDirectoryContent(config.getBaseDir(), config.getBranch());
-            
-            return contents.stream()
-                    .filter(GHContent::isFile)
-                    .map(GHContent::getName)
-                    .filter(name -> name.endsWith(".zip"))
-                    .map(name -> name.replace(".zip", ""))
-                    .sorted()
-                    .collect(Collectors.toList());
-        } catch (GHFileNotFoundException e) {
-            log.warn("Snapshot directory not found in GitHub: {}", config.getBaseDir());
-            return List.of();
-        }
+        return listDirectory(config.getBaseDir()).stream()
+                .map(DirectoryEntry::name)
+                .filter(name -> name.endsWith(".zip"))
+                .map(name -> name.replace(".zip", ""))
+                .sorted()
+                .collect(Collectors.toList());
     }
     
     @Override
     public boolean deleteSnapshot(String name) throws IOException {
-        try {
-            GHRepository repository = gitHub.getRepository(config.getRepository());
-            String path = config.getBaseDir() + "/" + name + ".zip";
-            GHContent content = repository.getFileContent(path, config.getBranch());
-            content.delete("Delete WireMock snapshot: " + name, config.getBranch());
-            log.info("Deleted GitHub snapshot: {}", name);
-            return true;
-        } catch (GHFileNotFoundException e) {
+        if (!snapshotExists(name)) {
             log.warn("Snapshot not found for deletion: {}", name);
             return false;
         }
+        // A null blob SHA removes the path from the tree
+        commit(Collections.singletonMap(getSnapshotPath(name), null), "Delete WireMock snapshot: " + name);
+        log.info("Deleted GitHub snapshot: {}", name);
+        return true;
     }
     
     @Override
     public boolean snapshotExists(String name) throws IOException {
+        return findEntry(config.getBaseDir(), name + ".zip").isPresent();
+    }
+    
+    @Override
+    public boolean blobExists(String hash) throws IOException {
+        return findEntry(getBlobDirectory(hash), hash).isPresent();
+    }
+    
+    @Override
+    public void saveBlob(String hash, SnapshotWriter writer) throws IOException {
+        saveBlobs(Map.of(hash, writer));
+    }
+    
+    @Override
+    public void saveBlobs(Map<String, SnapshotWriter> blobs) throws IOException {
+        if (blobs.isEmpty()) {
+            return;
+        }
+        // Upload every blob first, then add them all to the branch in one commit
+        Map<String, String> files = new LinkedHashMap<>();
+        for (Map.Entry<String, SnapshotWriter> blob : blobs.entrySet()) {
+            files.put(getBlobDirectory(blob.getKey()) + "/" + blob.getKey(), gitData.createBlob(blob.getValue()));
+        }
+        commit(files, "Add " + files.size() + " WireMock snapshot blob(s)");
+        log.debug("Created {} GitHub blobs in one commit", files.size());
+    }
+    
+    @Override
+    public InputStream openBlob(String hash) throws IOException {
+        DirectoryEntry entry = findEntry(getBlobDirectory(hash), hash)
+                .orElseThrow(() -> new FileNotFoundException("Blob not found in GitHub: " + hash));
+        return new BufferedInputStream(repository().readBlob(entry.sha()));
+    }
+    
+    private GHRepository repository() throws IOException {
+        GHRepository current = repository;
+        if (current != null) {
+            repositoryLookupsSaved.increment();
+            return current;
+        }
+        synchronized (this) {
+            if (repository == null) {
+                repository = gitHub.getRepository(config.getRepository());
+            }
+            return repository;
+        }
+    }
+    
+    private void commit(Map<String, String> files, String message) throws IOException {
         try {
-            GHRepository repository = gitHub.getRepository(config.getRepository());
-            String path = config.getBaseDir() + "/" + name + ".zip";
-            repository.getFileContent(path, config.getBranch());
-            return true;
-        } catch (GHFileNotFoundException e) {
-            return false;
+            gitData.commit(config.getBranch(), files, message);
+        } finally {
+            // Whether or not the commit landed, the cached listings may no longer reflect the branch
+            files.keySet().forEach(path -> listings.remove(path.substring(0, path.lastIndexOf('/'))));
         }
     }
+    
+    private Optional<DirectoryEntry> findEntry(String directory, String fileName) throws IOException {
+        return listDirectory(directory).stream()
+                .filter(entry -> entry.name().equals(fileName))
+                .findFirst();
+    }
+    
+    /**
+     * The files in a directory, from the cache when GitHub confirms the listing is unchanged.
+     * Tree entries carry the blob SHA and size without inlining the content.
+     */
+    private List<DirectoryEntry> listDirectory(String directory) throws IOException {
+        CachedListing cached = listings.get(directory);
+        GitHubGitDataClient.Listing listing = gitData.listDirectory(directory, config.getBranch(),
+                cached != null ? cached.etag() : null);
+        if (listing.notModified()) {
+            listingsNotModified.increment();
+            return cached.entries();
+        }
+        listingsFetched.increment();
+        if (listing.truncated()) {
+            // A partial listing would report existing snapshots and blobs as missing
+            throw new IOException("GitHub directory " + directory + " has more entries than one tree listing returns");
+        }
+        List<DirectoryEntry> entries = StreamSupport.stream(listing.entries().spliterator(), false)
+                .filter(entry -> "blob".equals(entry.path("type").asText()))
+                .map(DirectoryEntry::of)
+                .toList();
+        if (listing.etag() != null) {
+            listings.put(directory, new CachedListing(listing.etag(), entries));
+        }
+        return entries;
+    }
+    
+    private String getSnapshotPath(String name) {
+        return config.getBaseDir() + "/" + name + ".zip";
+    }
+    
+    private String getBlobDirectory(String hash) {
+        return config.getBaseDir() + "/blobs/" + hash.substring(0, 2);
+    }
+    
+    private record DirectoryEntry(String name, String sha, long size) {
+        
+        static DirectoryEntry of(JsonNode entry) {
+            return new DirectoryEntry(entry.path("path").asText(), entry.path("sha").asText(), entry.path("size").asLong());
+        }
+    }
+    
+    private record CachedListing(String etag, List<DirectoryEntry> entries) {
+    }
 }
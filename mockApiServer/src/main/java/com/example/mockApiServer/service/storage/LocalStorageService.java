@@ -6,10 +6,16 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -21,11 +27,13 @@ public class LocalStorageService implements StorageService {
     private static final Logger log = LoggerFactory.getLogger(LocalStorageService.class);
     private final StorageConfig.LocalConfig config;
     private final Path storageDirectory;
+    private final Path blobDirectory;
     
     public LocalStorageService(StorageConfig storageConfig) throws IOException {
         this.config = storageConfig.getLocal();
         this.storageDirectory = Paths.get(config.getDirectory());
-        Files.createDirectories(storageDirectory);
+        this.blobDirectory = storageDirectory.resolve("blobs");
+        Files.createDirectories(blobDirectory);
         log.info("Local storage initialized at: {}", storageDirectory.toAbsolutePath());
     }
     
@@ -36,16 +44,42 @@ public class LocalStorageService implements StorageService {
         log.info("Snapshot saved locally: {}", snapshotPath.toAbsolutePath());
     }
     
+    @Override
+    public void saveSnapshot(String name, SnapshotWriter writer) throws IOException {
+        Path snapshotPath = storageDirectory.resolve(name + ".zip");
+        // Write next to the target and move into place so readers never see a partial archive
+        Path tempPath = Files.createTempFile(storageDirectory, name + "-", ".zip.tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
+                writer.writeTo(out);
+            }
+            Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Snapshot streamed locally: {}", snapshotPath.toAbsolutePath());
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+    
     @Override
     public byte[] loadSnapshot(String name) throws IOException {
         Path snapshotPath = storageDirectory.resolve(name + ".zip");
         if (!Files.exists(snapshotPath)) {
-            throw new IOException("Snapshot not found: " + name);
+            throw new FileNotFoundException("Snapshot not found: " + name);
         }
         log.info("Loading snapshot from: {}", snapshotPath.toAbsolutePath());
         return Files.readAllBytes(snapshotPath);
     }
     
+    @Override
+    public InputStream openSnapshot(String name) throws IOException {
+        Path snapshotPath = storageDirectory.resolve(name + ".zip");
+        if (!Files.exists(snapshotPath)) {
+            throw new FileNotFoundException("Snapshot not found: " + name);
+        }
+        log.info("Streaming snapshot from: {}", snapshotPath.toAbsolutePath());
+        return new BufferedInputStream(Files.newInputStream(snapshotPath));
+    }
+    
     @Override
     public List<String> listSnapshots() throws IOException {
         if (!Files.exists(storageDirectory)) {
@@ -78,4 +112,38 @@ public class LocalStorageService implements StorageService {
         Path snapshotPath = storageDirectory.resolve(name + ".zip");
         return Files.exists(snapshotPath);
     }
+    
+    @Override
+    public boolean blobExists(String hash) {
+        return Files.exists(blobPath(hash));
+    }
+    
+    @Override
+    public void saveBlob(String hash, SnapshotWriter writer) throws IOException {
+        Path blobPath = blobPath(hash);
+        Files.createDirectories(blobPath.getParent());
+        Path tempPath = Files.createTempFile(blobPath.getParent(), hash, ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
+                writer.writeTo(out);
+            }
+            Files.move(tempPath, blobPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+    
+    @Override
+    public InputStream openBlob(String hash) throws IOException {
+        Path blobPath = blobPath(hash);
+        if (!Files.exists(blobPath)) {
+            throw new FileNotFoundException("Blob not found: " + hash);
+        }
+        return new BufferedInputStream(Files.newInputStream(blobPath));
+    }
+    
+    private Path blobPath(String hash) {
+        // Fan out by the first two hex digits to keep directories small
+        return blobDirectory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
 }
@@ -1,29 +1,59 @@
 package com.example.mockApiServer.service.storage;
 
 import com.example.mockApiServer.config.StorageConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Base64;
-import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
+/**
+ * Stores snapshots as versions of a Maven artifact in a Nexus repository. Transfers are streamed
+ * over a pooled, keep-alive HTTP client and checked against the SHA-1 checksum Nexus keeps beside
+ * each file; downloads are spooled to a temporary file and only handed out once they verify.
+ * Snapshots are listed through the Nexus v3 search API.
+ */
 @Service
 @ConditionalOnProperty(name = "storage.type", havingValue = "NEXUS")
 public class NexusStorageService implements StorageService {
     
     private static final Logger log = LoggerFactory.getLogger(NexusStorageService.class);
+    private static final String CHECKSUM_SUFFIX = ".sha1";
     private final StorageConfig.NexusConfig config;
     private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
     
-    public NexusStorageService(StorageConfig storageConfig) {
+    public NexusStorageService(StorageConfig storageConfig, ObjectMapper objectMapper) {
         this.config = storageConfig.getNexus();
         
         if (config.getUrl() == null || config.getUrl().isEmpty()) {
@@ -34,7 +64,17 @@ public class NexusStorageService implements StorageService {
             throw new IllegalStateException("Nexus repository is required for NEXUS storage type");
         }
         
-        this.restTemplate = new RestTemplate();
+        // The JDK client keeps connections alive between requests and streams bodies in both directions.
+        // HTTP/1.1 keeps uploads chunked; an h2c upgrade cancels a streamed PUT on servers that offer it.
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(config.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(config.getReadTimeout());
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.objectMapper = objectMapper;
         log.info("Nexus storage initialized for repository: {}", config.getRepository());
     }
     
@@ -51,11 +91,15 @@ public class NexusStorageService implements StorageService {
         return headers;
     }
     
+    private String getBaseUrl() {
+        return config.getUrl().replaceAll("/+$", "");
+    }
+    
     private String getArtifactUrl(String name) {
         // Format: {nexusUrl}/repository/{repositoryName}/{groupId}/{artifactId}/{version}/{artifactId}-{version}.zip
         String groupPath = config.getGroupId().replace(".", "/");
         return String.format("%s/repository/%s/%s/%s/%s/%s-%s.zip",
-                config.getUrl().replaceAll("/+$", ""),
+                getBaseUrl(),
                 config.getRepository(),
                 groupPath,
                 config.getArtifactId(),
@@ -65,50 +109,184 @@ public class NexusStorageService implements StorageService {
     }
     
     @Override
-    public void saveSnapshot(String name, byte[] data) throws IOException {
-        HttpHeaders headers = createHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        
-        HttpEntity<byte[]> entity = new HttpEntity<>(data, headers);
+    public void saveSnapshot(String name, SnapshotWriter writer) throws IOException {
         String url = getArtifactUrl(name);
+        MessageDigest sha1 = sha1();
         
         try {
-            restTemplate.exchange(url, HttpMethod.PUT, entity, Void.class);
-            log.info("Snapshot saved to Nexus: {}", name);
+            restTemplate.execute(url, HttpMethod.PUT, request -> {
+                request.getHeaders().putAll(createHeaders());
+                request.getHeaders().setContentType(MediaType.APPLICATION_OCTET_STREAM);
+                // Stream the body with chunked transfer encoding instead of buffering it, hashing as it goes
+                if (request instanceof StreamingHttpOutputMessage streamingRequest) {
+                    streamingRequest.setBody(out -> writer.writeTo(new DigestOutputStream(out, sha1)));
+                } else {
+                    writer.writeTo(new DigestOutputStream(request.getBody(), sha1));
+                }
+            }, null);
         } catch (Exception e) {
             throw new IOException("Failed to save snapshot to Nexus: " + name, e);
         }
+        
+        verifyUpload(name, url, HexFormat.of().formatHex(sha1.digest()));
+        log.info("Snapshot streamed to Nexus: {}", name);
+    }
+    
+    /**
+     * Compare the checksum Nexus computed for the upload with the one computed while sending it.
+     * Repositories that do not generate checksums get the sidecar uploaded so downloads can verify.
+     */
+    private void verifyUpload(String name, String url, String expected) throws IOException {
+        String stored = fetchChecksum(url);
+        if (stored == null) {
+            try {
+                HttpHeaders headers = createHeaders();
+                headers.setContentType(MediaType.TEXT_PLAIN);
+                restTemplate.exchange(url + CHECKSUM_SUFFIX, HttpMethod.PUT, new HttpEntity<>(expected, headers), Void.class);
+            } catch (Exception e) {
+                throw new IOException("Failed to save snapshot checksum to Nexus: " + name, e);
+            }
+        } else if (!stored.equals(expected)) {
+            throw new IOException("Checksum mismatch after saving snapshot to Nexus: " + name
+                    + " (sent " + expected + ", stored " + stored + ")");
+        }
+    }
+    
+    /**
+     * @return The SHA-1 from the checksum sidecar of a file, or null if there is none
+     */
+    private String fetchChecksum(String url) throws IOException {
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(url + CHECKSUM_SUFFIX, HttpMethod.GET,
+                    new HttpEntity<>(createHeaders()), String.class);
+            return parseChecksum(response.getBody());
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        } catch (Exception e) {
+            throw new IOException("Failed to fetch checksum from Nexus: " + url + CHECKSUM_SUFFIX, e);
+        }
     }
     
     @Override
-    public byte[] loadSnapshot(String name) throws IOException {
-        HttpHeaders headers = createHeaders();
-        HttpEntity<Void> entity = new HttpEntity<>(headers);
+    public InputStream openSnapshot(String name) throws IOException {
+        return openSnapshotWithRevision(name).content();
+    }
+    
+    @Override
+    public RevisionedStream openSnapshotWithRevision(String name) throws IOException {
         String url = getArtifactUrl(name);
+        ClientHttpRequest request = restTemplate.getRequestFactory()
+                .createRequest(URI.create(url), HttpMethod.GET);
+        request.getHeaders().putAll(createHeaders());
+        ClientHttpResponse response = request.execute();
         
+        String expected;
+        String revision;
         try {
-            ResponseEntity<byte[]> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    entity,
-                    byte[].class);
-            
-            log.info("Snapshot loaded from Nexus: {}", name);
-            return response.getBody();
-        } catch (HttpClientErrorException.NotFound e) {
-            throw new IOException("Snapshot not found in Nexus: " + name, e);
-        } catch (Exception e) {
-            throw new IOException("Failed to load snapshot from Nexus: " + name, e);
+            if (response.getStatusCode() == HttpStatus.NOT_FOUND) {
+                throw new FileNotFoundException("Snapshot not found in Nexus: " + name);
+            }
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                throw new IOException("Failed to load snapshot from Nexus: " + name
+                        + " (HTTP " + response.getStatusCode().value() + ")");
+            }
+            revision = revisionOf(response.getHeaders());
+            // Nexus sends the SHA-1 with the download; only older proxies need the sidecar fetched
+            expected = parseChecksum(response.getHeaders().getFirst("X-Checksum-Sha1"));
+            if (expected == null) {
+                expected = fetchChecksum(url);
+            }
+        } catch (IOException e) {
+            response.close();
+            throw e;
+        }
+        
+        if (expected == null) {
+            log.warn("No checksum available for Nexus snapshot {}, streaming it unverified", name);
+            // Keep the connection open until the caller has consumed the body
+            return new RevisionedStream(new FilterInputStream(response.getBody()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        response.close();
+                    }
+                }
+            }, revision);
+        }
+        return new RevisionedStream(spoolVerified(name, response, expected), revision);
+    }
+    
+    /**
+     * Download to a temporary file while hashing it, so a corrupt download is rejected before the
+     * caller reads a byte of it and starts replacing the WireMock directory
+     * @return A stream over the verified download that deletes the file when closed
+     */
+    private InputStream spoolVerified(String name, ClientHttpResponse response, String expected) throws IOException {
+        Path spool = Files.createTempFile("nexus-snapshot-", ".zip");
+        try {
+            MessageDigest digest = sha1();
+            long size;
+            try (response; OutputStream out = new DigestOutputStream(Files.newOutputStream(spool), digest)) {
+                size = response.getBody().transferTo(out);
+            }
+            String actual = HexFormat.of().formatHex(digest.digest());
+            if (!actual.equals(expected)) {
+                throw new IOException("Checksum mismatch for Nexus snapshot " + name
+                        + " (expected " + expected + ", got " + actual + ")");
+            }
+            log.info("Downloaded and verified snapshot from Nexus: {} ({} bytes)", name, size);
+            return Files.newInputStream(spool, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
         }
     }
     
     @Override
     public List<String> listSnapshots() throws IOException {
-        // Note: Nexus REST API v3 is required for listing artifacts
-        // This is a simplified implementation
-        // For production, you would need to use Nexus REST API to query for artifacts
-        log.warn("Listing snapshots from Nexus is not fully implemented. Using Nexus REST API v3 is recommended.");
-        return Collections.emptyList();
+        // Each page's continuation token is only known once the previous page has arrived
+        Set<String> names = new TreeSet<>();
+        Set<String> seenTokens = new HashSet<>();
+        String continuationToken = null;
+        int pages = 0;
+        do {
+            JsonNode page = searchPage(continuationToken);
+            for (JsonNode component : page.path("items")) {
+                if (component.hasNonNull("version")) {
+                    names.add(component.get("version").asText());
+                }
+            }
+            continuationToken = page.path("continuationToken").isTextual()
+                    ? page.path("continuationToken").asText() : null;
+            if (++pages >= config.getSearchPageLimit() && continuationToken != null) {
+                log.warn("Stopped listing Nexus snapshots after {} pages", pages);
+                break;
+            }
+        } while (continuationToken != null && seenTokens.add(continuationToken));
+        
+        log.debug("Listed {} Nexus snapshots in {} page(s)", names.size(), pages);
+        return new ArrayList<>(names);
+    }
+    
+    private JsonNode searchPage(String continuationToken) throws IOException {
+        UriComponentsBuilder uri = UriComponentsBuilder.fromUriString(getBaseUrl() + "/service/rest/v1/search")
+                .queryParam("repository", config.getRepository())
+                .queryParam("maven.groupId", config.getGroupId())
+                .queryParam("maven.artifactId", config.getArtifactId())
+                .queryParam("maven.extension", "zip");
+        if (continuationToken != null) {
+            uri.queryParam("continuationToken", continuationToken);
+        }
+        
+        try {
+            return restTemplate.execute(uri.encode().build().toUri(), HttpMethod.GET,
+                    request -> request.getHeaders().putAll(createHeaders()),
+                    response -> objectMapper.readTree(response.getBody()));
+        } catch (Exception e) {
+            throw new IOException("Failed to list snapshots from Nexus", e);
+        }
     }
     
     @Override
@@ -120,13 +298,20 @@ public class NexusStorageService implements StorageService {
         try {
             restTemplate.exchange(url, HttpMethod.DELETE, entity, Void.class);
             log.info("Snapshot deleted from Nexus: {}", name);
-            return true;
         } catch (HttpClientErrorException.NotFound e) {
             log.warn("Snapshot not found in Nexus for deletion: {}", name);
             return false;
         } catch (Exception e) {
             throw new IOException("Failed to delete snapshot from Nexus: " + name, e);
         }
+        
+        try {
+            restTemplate.exchange(url + CHECKSUM_SUFFIX, HttpMethod.DELETE, entity, Void.class);
+        } catch (Exception e) {
+            // Generated checksums go with the file; only a sidecar uploaded by saveSnapshot is left behind
+            log.debug("No checksum sidecar deleted for Nexus snapshot {}: {}", name, e.getMessage());
+        }
+        return true;
     }
     
     @Override
@@ -149,4 +334,53 @@ public class NexusStorageService implements StorageService {
             return false;
         }
     }
+    
+    @Override
+    public String snapshotRevision(String name) throws IOException {
+        HttpEntity<Void> entity = new HttpEntity<>(createHeaders());
+        
+        try {
+            HttpHeaders headers = restTemplate.exchange(
+                    getArtifactUrl(name),
+                    HttpMethod.HEAD,
+                    entity,
+                    Void.class).getHeaders();
+            return revisionOf(headers);
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        } catch (Exception e) {
+            throw new IOException("Failed to check snapshot revision in Nexus: " + name, e);
+        }
+    }
+    
+    /**
+     * Nexus sends the SHA-1 as the ETag; fall back to the checksum header and then the modification time
+     */
+    private static String revisionOf(HttpHeaders headers) {
+        if (headers.getETag() != null) {
+            return headers.getETag();
+        }
+        if (headers.getFirst("X-Checksum-Sha1") != null) {
+            return headers.getFirst("X-Checksum-Sha1");
+        }
+        return headers.getLastModified() > 0 ? String.valueOf(headers.getLastModified()) : null;
+    }
+    
+    /**
+     * Checksum files hold the hex digest, optionally followed by the file name
+     */
+    private static String parseChecksum(String content) {
+        if (content == null || content.isBlank()) {
+            return null;
+        }
+        return content.trim().split("\\s+")[0].toLowerCase();
+    }
+    
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
 }
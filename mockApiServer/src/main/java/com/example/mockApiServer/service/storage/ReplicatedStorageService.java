@@ -0,0 +1,364 @@
+package com.example.mockApiServer.service.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Storage that writes to a primary backend synchronously and replicates every change to the
+ * remote backends in the background. Each replica has its own worker, so a slow or unreachable
+ * remote delays neither the caller nor the other replicas; failed copies are retried with a
+ * growing delay and superseded ones are skipped. Reads go to the replica with the lowest recent
+ * latency, moving on to the next one when it fails; a replica that failed is tried last until the
+ * failover period has passed.
+ */
+public class ReplicatedStorageService implements StorageService, DisposableBean {
+    
+    private static final Logger log = LoggerFactory.getLogger(ReplicatedStorageService.class);
+    private static final String PRIMARY = "primary";
+    // Weight of the newest sample in the moving average of read latency
+    private static final double LATENCY_WEIGHT = 0.2;
+    
+    private final Replica primary;
+    private final List<Replica> remotes = new ArrayList<>();
+    private final List<Replica> replicas = new ArrayList<>();
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration failoverPeriod;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong sequence = new AtomicLong();
+    
+    /**
+     * @param remotes Remote backends by name, used as metric tags and thread names
+     * @param maxAttempts Attempts to copy one change to a replica before giving up on it
+     * @param retryDelay Delay before the first retry; each further retry waits one delay longer
+     * @param failoverPeriod How long a replica that failed a read is tried after the others
+     */
+    public ReplicatedStorageService(StorageService primary, Map<String, StorageService> remotes, int maxAttempts,
+                                    Duration retryDelay, Duration failoverPeriod, MeterRegistry meterRegistry) {
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.failoverPeriod = failoverPeriod;
+        this.meterRegistry = meterRegistry;
+        this.primary = new Replica(PRIMARY, primary, false);
+        replicas.add(this.primary);
+        remotes.forEach((name, storage) -> {
+            Replica replica = new Replica(name, storage, true);
+            this.remotes.add(replica);
+            replicas.add(replica);
+        });
+        log.info("Replicated storage initialized, replicating to: {}", remotes.keySet());
+    }
+    
+    @Override
+    public void saveSnapshot(String name, SnapshotWriter writer) throws IOException {
+        primary.storage.saveSnapshot(name, writer);
+        // Copy from the primary, so a later write of the same snapshot is what every replica ends up with
+        replicate("snapshot:" + name, "save snapshot " + name,
+                remote -> remote.saveSnapshot(name, out -> {
+                    try (InputStream in = primary.storage.openSnapshot(name)) {
+                        in.transferTo(out);
+                    }
+                }));
+    }
+    
+    @Override
+    public InputStream openSnapshot(String name) throws IOException {
+        return read("snapshot " + name, storage -> storage.openSnapshot(name));
+    }
+    
+    @Override
+    public RevisionedStream openSnapshotWithRevision(String name) throws IOException {
+        return read("snapshot " + name, storage -> storage.openSnapshotWithRevision(name));
+    }
+    
+    @Override
+    public List<String> listSnapshots() throws IOException {
+        return read("snapshot list", StorageService::listSnapshots);
+    }
+    
+    @Override
+    public boolean deleteSnapshot(String name) throws IOException {
+        boolean deleted = primary.storage.deleteSnapshot(name);
+        replicate("snapshot:" + name, "delete snapshot " + name, remote -> remote.deleteSnapshot(name));
+        return deleted;
+    }
+    
+    @Override
+    public boolean snapshotExists(String name) throws IOException {
+        return read("snapshot " + name, storage -> {
+            if (!storage.snapshotExists(name)) {
+                // Not replicated here yet, or deleted here first: ask the next replica
+                throw new FileNotFoundException("Snapshot not found: " + name);
+            }
+            return true;
+        }, false);
+    }
+    
+    @Override
+    public String snapshotRevision(String name) throws IOException {
+        return primary.storage.snapshotRevision(name);
+    }
+    
+    /**
+     * Answered by the primary alone: it decides which blobs get written, and so replicated
+     */
+    @Override
+    public boolean blobExists(String hash) throws IOException {
+        return primary.storage.blobExists(hash);
+    }
+    
+    @Override
+    public void saveBlob(String hash, SnapshotWriter writer) throws IOException {
+        saveBlobs(Map.of(hash, writer));
+    }
+    
+    @Override
+    public void saveBlobs(Map<String, SnapshotWriter> blobs) throws IOException {
+        primary.storage.saveBlobs(blobs);
+        // Blobs never change, so each batch is its own change and is never superseded
+        List<String> hashes = List.copyOf(blobs.keySet());
+        replicate(null, "save " + hashes.size() + " blob(s)", remote -> {
+            Map<String, SnapshotWriter> copies = new LinkedHashMap<>();
+            for (String hash : hashes) {
+                copies.put(hash, out -> {
+                    try (InputStream in = primary.storage.openBlob(hash)) {
+                        in.transferTo(out);
+                    }
+                });
+            }
+            remote.saveBlobs(copies);
+        });
+    }
+    
+    @Override
+    public InputStream openBlob(String hash) throws IOException {
+        return read("blob " + hash, storage -> storage.openBlob(hash));
+    }
+    
+    /**
+     * Replication state per remote, for health details
+     */
+    public Map<String, Map<String, Object>> getReplicaStatus() {
+        Map<String, Map<String, Object>> status = new LinkedHashMap<>();
+        for (Replica remote : remotes) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("pending", remote.pending.size());
+            details.put("lagSeconds", remote.lagSeconds());
+            details.put("failures", (long) remote.failures.count());
+            details.put("readLatencyMillis", Math.round(remote.latencyNanos / 1_000_000.0));
+            details.put("failedOver", remote.isFailedOver());
+            status.put(remote.name, details);
+        }
+        return status;
+    }
+    
+    @Override
+    public void destroy() throws InterruptedException {
+        for (Replica remote : remotes) {
+            remote.executor.shutdown();
+        }
+        for (Replica remote : remotes) {
+            if (!remote.executor.awaitTermination(10, TimeUnit.SECONDS) || !remote.pending.isEmpty()) {
+                log.warn("Stopped replicating to {} with {} change(s) not copied", remote.name, remote.pending.size());
+                remote.executor.shutdownNow();
+            }
+        }
+    }
+    
+    /**
+     * @param key Identifies what the change replaces, so a newer change with the same key supersedes it; null if none
+     */
+    private void replicate(String key, String description, ReplicaWrite write) {
+        long change = sequence.incrementAndGet();
+        long enqueuedAt = System.nanoTime();
+        for (Replica remote : remotes) {
+            if (key != null) {
+                remote.latest.put(key, change);
+            }
+            remote.pending.put(change, enqueuedAt);
+            remote.executor.execute(() -> copy(remote, key, change, enqueuedAt, description, write, 1));
+        }
+    }
+    
+    private void copy(Replica remote, String key, long change, long enqueuedAt, String description,
+                      ReplicaWrite write, int attempt) {
+        if (key != null && remote.latest.getOrDefault(key, change) != change) {
+            // A newer change to the same snapshot is queued behind this one and copies the latest state
+            remote.pending.remove(change);
+            return;
+        }
+        try {
+            write.apply(remote.storage);
+            remote.lag.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            remote.complete(key, change);
+            log.debug("Replicated {} to {}", description, remote.name);
+        } catch (Exception e) {
+            remote.failures.increment();
+            if (attempt >= maxAttempts || remote.executor.isShutdown()) {
+                log.error("Giving up replicating {} to {} after {} attempt(s)", description, remote.name, attempt, e);
+                remote.complete(key, change);
+                return;
+            }
+            long delay = retryDelay.toMillis() * attempt;
+            log.warn("Failed to replicate {} to {} (attempt {}), retrying in {} ms: {}",
+                    description, remote.name, attempt, delay, e.getMessage());
+            remote.executor.schedule(() -> copy(remote, key, change, enqueuedAt, description, write, attempt + 1),
+                    delay, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private <T> T read(String description, ReplicaRead<T> read) throws IOException {
+        return read(description, read, null);
+    }
+    
+    /**
+     * Try each replica, fastest healthy one first, until one succeeds
+     * @param notFound Result when every replica reports the item missing, or null to throw
+     */
+    private <T> T read(String description, ReplicaRead<T> read, T notFound) throws IOException {
+        List<Replica> order = new ArrayList<>(replicas);
+        order.sort(Comparator.comparing(Replica::isFailedOver).thenComparingDouble(Replica::expectedLatency));
+        
+        IOException failure = null;
+        boolean missing = false;
+        for (Replica replica : order) {
+            long start = System.nanoTime();
+            try {
+                T result = read.apply(replica.storage);
+                replica.recordLatency(System.nanoTime() - start);
+                replica.reads.increment();
+                return result;
+            } catch (FileNotFoundException e) {
+                // Missing on this replica only; that says nothing about its health
+                missing = true;
+                failure = failure != null ? failure : e;
+            } catch (IOException | RuntimeException e) {
+                replica.failOver();
+                log.warn("Reading {} from {} failed, trying the next replica: {}", description, replica.name, e.getMessage());
+                if (failure == null || failure instanceof FileNotFoundException) {
+                    failure = e instanceof IOException io ? io : new IOException(e.getMessage(), e);
+                }
+            }
+        }
+        if (notFound != null && missing) {
+            return notFound;
+        }
+        throw failure;
+    }
+    
+    @FunctionalInterface
+    private interface ReplicaRead<T> {
+        T apply(StorageService storage) throws IOException;
+    }
+    
+    @FunctionalInterface
+    private interface ReplicaWrite {
+        void apply(StorageService storage) throws IOException;
+    }
+    
+    private final class Replica {
+        
+        final String name;
+        final StorageService storage;
+        final ScheduledExecutorService executor;
+        // Change sequence number -> enqueue time, for changes not yet copied here
+        final Map<Long, Long> pending = new ConcurrentHashMap<>();
+        // Newest queued change per snapshot, so older ones can be skipped
+        final Map<String, Long> latest = new ConcurrentHashMap<>();
+        final Counter reads;
+        final Counter failures;
+        final Timer lag;
+        volatile double latencyNanos;
+        volatile boolean failed;
+        volatile long failedAt;
+        
+        Replica(String name, StorageService storage, boolean remote) {
+            this.name = name;
+            this.storage = storage;
+            this.executor = remote ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replication-" + name);
+                thread.setDaemon(true);
+                return thread;
+            }) : null;
+            this.reads = Counter.builder("wiremock.storage.replication.reads")
+                    .description("Snapshot and blob reads served by each replica")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+            // The primary is written synchronously and has nothing to replicate
+            this.failures = remote ? Counter.builder("wiremock.storage.replication.failures")
+                    .description("Failed attempts to copy a change to a replica")
+                    .tag("replica", name)
+                    .register(meterRegistry) : null;
+            this.lag = remote ? Timer.builder("wiremock.storage.replication.lag")
+                    .description("Time from a write to the primary until it was copied to a replica")
+                    .tag("replica", name)
+                    .register(meterRegistry) : null;
+            if (remote) {
+                Gauge.builder("wiremock.storage.replication.pending", pending, Map::size)
+                        .description("Changes waiting to be copied to a replica")
+                        .tag("replica", name)
+                        .register(meterRegistry);
+                Gauge.builder("wiremock.storage.replication.lag.current", this, Replica::lagSeconds)
+                        .description("Age of the oldest change not yet copied to a replica")
+                        .tag("replica", name)
+                        .baseUnit("seconds")
+                        .register(meterRegistry);
+            }
+        }
+        
+        double lagSeconds() {
+            long now = System.nanoTime();
+            return pending.values().stream()
+                    .mapToLong(enqueuedAt -> now - enqueuedAt)
+                    .max()
+                    .orElse(0) / 1_000_000_000.0;
+        }
+        
+        /**
+         * Replicas never read from rank after those with a measured latency
+         */
+        double expectedLatency() {
+            return latencyNanos == 0 ? Double.MAX_VALUE : latencyNanos;
+        }
+        
+        boolean isFailedOver() {
+            return failed && System.nanoTime() - failedAt < failoverPeriod.toNanos();
+        }
+        
+        void failOver() {
+            failedAt = System.nanoTime();
+            failed = true;
+        }
+        
+        void complete(String key, long change) {
+            if (key != null) {
+                latest.remove(key, change);
+            }
+            pending.remove(change);
+        }
+        
+        void recordLatency(long nanos) {
+            latencyNanos = latencyNanos == 0 ? nanos : latencyNanos + LATENCY_WEIGHT * (nanos - latencyNanos);
+        }
+    }
+}
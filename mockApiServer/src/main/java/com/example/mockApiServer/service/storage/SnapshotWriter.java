@@ -0,0 +1,20 @@
+package com.example.mockApiServer.service.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Callback that writes snapshot content directly into a storage backend sink.
+ * Use {@link java.nio.channels.Channels#newChannel(OutputStream)} when a
+ * {@link java.nio.channels.WritableByteChannel} is more convenient.
+ */
+@FunctionalInterface
+public interface SnapshotWriter {
+
+    /**
+     * Write the snapshot content to the given sink
+     * @param out The sink provided by the storage backend; must not be closed by the writer
+     * @throws IOException if writing fails
+     */
+    void writeTo(OutputStream out) throws IOException;
+}
@@ -1,20 +1,37 @@
 package com.example.mockApiServer.service.storage;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface for snapshot storage backends
  */
 public interface StorageService {
     
+    /**
+     * Name prefix used when content-addressed blobs are stored as regular snapshots
+     */
+    String BLOB_NAME_PREFIX = "blob-";
+    
     /**
      * Save a snapshot with the given name
      * @param name The name/identifier for the snapshot
      * @param data The snapshot data as byte array
      * @throws IOException if save operation fails
      */
-    void saveSnapshot(String name, byte[] data) throws IOException;
+    default void saveSnapshot(String name, byte[] data) throws IOException {
+        saveSnapshot(name, out -> out.write(data));
+    }
+    
+    /**
+     * Save a snapshot by streaming its content into the backend
+     * @param name The name/identifier for the snapshot
+     * @param writer Callback that writes the snapshot data to the backend sink
+     * @throws IOException if save operation fails
+     */
+    void saveSnapshot(String name, SnapshotWriter writer) throws IOException;
     
     /**
      * Load a snapshot by name
@@ -22,7 +39,19 @@ public interface StorageService {
      * @return The snapshot data as byte array
      * @throws IOException if load operation fails
      */
-    byte[] loadSnapshot(String name) throws IOException;
+    default byte[] loadSnapshot(String name) throws IOException {
+        try (InputStream in = openSnapshot(name)) {
+            return in.readAllBytes();
+        }
+    }
+    
+    /**
+     * Open a snapshot for streaming reads
+     * @param name The name/identifier of the snapshot
+     * @return Stream over the snapshot data; the caller must close it
+     * @throws IOException if the snapshot cannot be opened
+     */
+    InputStream openSnapshot(String name) throws IOException;
     
     /**
      * List all available snapshots
@@ -45,4 +74,71 @@ public interface StorageService {
      * @return true if snapshot exists, false otherwise
      */
     boolean snapshotExists(String name) throws IOException;
+    
+    /**
+     * Get a token identifying the current version of a snapshot, such as an ETag or content SHA
+     * @param name The name/identifier of the snapshot
+     * @return The revision, or null if the snapshot does not exist or the backend cannot identify versions
+     * @throws IOException if the lookup fails
+     */
+    default String snapshotRevision(String name) throws IOException {
+        return null;
+    }
+    
+    /**
+     * Open a snapshot together with the revision of the content being streamed. Both come from the
+     * same read, so they still agree if the snapshot is replaced while it is being fetched.
+     * @param name The name/identifier of the snapshot
+     * @return The stream, which the caller must close, and its revision or null if unknown
+     * @throws IOException if the snapshot cannot be opened
+     */
+    default RevisionedStream openSnapshotWithRevision(String name) throws IOException {
+        return new RevisionedStream(openSnapshot(name), null);
+    }
+    
+    /**
+     * Check if a content-addressed blob exists
+     * @param hash The SHA-256 hex digest of the blob content
+     * @return true if the blob exists, false otherwise
+     */
+    default boolean blobExists(String hash) throws IOException {
+        return snapshotExists(BLOB_NAME_PREFIX + hash);
+    }
+    
+    /**
+     * Save a content-addressed blob
+     * @param hash The SHA-256 hex digest of the blob content
+     * @param writer Callback that writes the blob content to the backend sink
+     * @throws IOException if save operation fails
+     */
+    default void saveBlob(String hash, SnapshotWriter writer) throws IOException {
+        saveSnapshot(BLOB_NAME_PREFIX + hash, writer);
+    }
+    
+    /**
+     * Save several content-addressed blobs, as a single commit on backends that commit writes
+     * @param blobs Writer for each blob, by SHA-256 hex digest
+     * @throws IOException if save operation fails
+     */
+    default void saveBlobs(Map<String, SnapshotWriter> blobs) throws IOException {
+        for (Map.Entry<String, SnapshotWriter> blob : blobs.entrySet()) {
+            saveBlob(blob.getKey(), blob.getValue());
+        }
+    }
+    
+    /**
+     * Open a content-addressed blob for streaming reads
+     * @param hash The SHA-256 hex digest of the blob content
+     * @return Stream over the blob content; the caller must close it
+     * @throws IOException if the blob cannot be opened
+     */
+    default InputStream openBlob(String hash) throws IOException {
+        return openSnapshot(BLOB_NAME_PREFIX + hash);
+    }
+    
+    /**
+     * Snapshot content and the revision, as snapshotRevision reports it, of that content
+     */
+    record RevisionedStream(InputStream content, String revision) {
+    }
 }
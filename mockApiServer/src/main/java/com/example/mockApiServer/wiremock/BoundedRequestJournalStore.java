@@ -0,0 +1,232 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.common.Encoding;
+import com.github.tomakehurst.wiremock.http.LoggedResponse;
+import com.github.tomakehurst.wiremock.store.RequestJournalStore;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.stubbing.SubEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Request journal store with a retention policy. The journal can be switched off, kept as a ring
+ * buffer of the newest events, or fed a random sample of requests (also capped in size), so a
+ * long-running server no longer accumulates every request until it is reset. Evicting the oldest
+ * event is constant time, unlike WireMock's own size limit which counts the journal on every request.
+ * The size limit counts entries, not bytes: it bounds the heap the journal holds only because
+ * journalled response bodies are cut to a maximum length. The listeners that record traffic still
+ * see each response whole.
+ */
+public class BoundedRequestJournalStore implements RequestJournalStore {
+    
+    public enum Policy {
+        /** Keep every request, WireMock's default */
+        UNBOUNDED,
+        /** Keep nothing */
+        DISABLED,
+        /** Keep the newest max-entries requests */
+        RING,
+        /** Keep a random sample of requests, at most max-entries of them */
+        SAMPLED
+    }
+    
+    private final Policy policy;
+    private final int maxEntries;
+    private final double sampleRate;
+    private final int maxLoggedBodyBytes;
+    // Newest first, like WireMock's in-memory journal
+    private final Deque<UUID> order = new ConcurrentLinkedDeque<>();
+    private final Map<UUID, ServeEvent> events = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Counter droppedByPolicy;
+    private final Counter evicted;
+    private volatile Capture capture;
+    
+    /**
+     * @param maxEntries Capacity for the RING and SAMPLED policies, in entries whose size maxLoggedBodyBytes bounds
+     * @param sampleRate Fraction of requests journalled by the SAMPLED policy, 0.0 to 1.0
+     * @param maxLoggedBodyBytes Response body bytes kept per journalled request, or a negative value to keep them whole
+     */
+    public BoundedRequestJournalStore(Policy policy, int maxEntries, double sampleRate, int maxLoggedBodyBytes,
+                                      MeterRegistry meterRegistry) {
+        if ((policy == Policy.RING || policy == Policy.SAMPLED) && maxEntries <= 0) {
+            throw new IllegalArgumentException("Journal policy " + policy + " needs a positive max-entries");
+        }
+        this.policy = policy;
+        this.maxEntries = maxEntries;
+        this.sampleRate = sampleRate;
+        this.maxLoggedBodyBytes = maxLoggedBodyBytes;
+        this.droppedByPolicy = Counter.builder("wiremock.journal.dropped")
+                .description("Requests not journalled because the journal is disabled or the request was not sampled")
+                .tag("policy", policy.name())
+                .register(meterRegistry);
+        this.evicted = Counter.builder("wiremock.journal.evicted")
+                .description("Journalled requests discarded to stay within the journal size limit")
+                .tag("policy", policy.name())
+                .register(meterRegistry);
+        Gauge.builder("wiremock.journal.size", this, BoundedRequestJournalStore::getSize)
+                .description("Requests currently held in the request journal")
+                .tag("policy", policy.name())
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Journal every exchange served by the recording's proxy stub that the filter accepts, regardless
+     * of policy and with its whole response body, and stop evicting while WireMock records from the
+     * journal. Other requests are still admitted by the policy. Until the recording stops, the captured
+     * exchanges and everything journalled alongside them are held without any bound.
+     */
+    public void suspendLimits(UUID proxyStubId, RecordingFilter captureFilter) {
+        this.capture = new Capture(proxyStubId, captureFilter);
+    }
+    
+    /**
+     * Apply the policy again, trimming anything journalled above the size limit meanwhile
+     */
+    public void resumeLimits() {
+        capture = null;
+        evictOverflow();
+    }
+    
+    @Override
+    public void add(ServeEvent event) {
+        Capture recording = capture;
+        if (recording != null && recording.servedByProxy(event)) {
+            if (!recording.filter().shouldRecord(event.getRequest())) {
+                return;
+            }
+        } else if (!admit()) {
+            droppedByPolicy.increment();
+            return;
+        }
+        events.put(event.getId(), event);
+        order.addFirst(event.getId());
+        size.incrementAndGet();
+        if (recording == null) {
+            evictOverflow();
+        }
+    }
+    
+    @Override
+    public void put(UUID id, ServeEvent event) {
+        // WireMock updates an event when its response completes; ignore events that were never admitted
+        events.computeIfPresent(id, (key, existing) -> truncateBody(event));
+    }
+    
+    @Override
+    public Stream<ServeEvent> getAll() {
+        return order.stream().map(events::get).filter(Objects::nonNull);
+    }
+    
+    @Override
+    public Stream<UUID> getAllKeys() {
+        return order.stream();
+    }
+    
+    @Override
+    public Optional<ServeEvent> get(UUID id) {
+        return Optional.ofNullable(events.get(id));
+    }
+    
+    @Override
+    public void removeLast() {
+        UUID oldest = order.pollLast();
+        if (oldest != null && events.remove(oldest) != null) {
+            size.decrementAndGet();
+        }
+    }
+    
+    @Override
+    public void remove(UUID id) {
+        if (events.remove(id) != null) {
+            order.remove(id);
+            size.decrementAndGet();
+        }
+    }
+    
+    @Override
+    public void clear() {
+        order.clear();
+        events.clear();
+        size.set(0);
+    }
+    
+    public Policy getPolicy() {
+        return policy;
+    }
+    
+    public int getSize() {
+        return size.get();
+    }
+    
+    public long getDroppedCount() {
+        return (long) droppedByPolicy.count();
+    }
+    
+    public long getEvictedCount() {
+        return (long) evicted.count();
+    }
+    
+    private boolean admit() {
+        return switch (policy) {
+            case UNBOUNDED, RING -> true;
+            case DISABLED -> false;
+            case SAMPLED -> ThreadLocalRandom.current().nextDouble() < sampleRate;
+        };
+    }
+    
+    private ServeEvent truncateBody(ServeEvent event) {
+        LoggedResponse response = event.getResponse();
+        if (maxLoggedBodyBytes < 0 || response == null || response.getBody() == null
+                || response.getBody().length <= maxLoggedBodyBytes) {
+            return event;
+        }
+        Capture recording = capture;
+        if (recording != null && recording.servedByProxy(event)) {
+            // Recorded from the journal when the recording stops
+            return event;
+        }
+        LoggedResponse truncated = new LoggedResponse(response.getStatus(), response.getHeaders(),
+                Encoding.encodeBase64(Arrays.copyOf(response.getBody(), maxLoggedBodyBytes)), response.getFault(), null);
+        return new ServeEvent(event.getId(), event.getRequest(), event.getStubMapping(), event.getResponseDefinition(),
+                truncated, false, event.getTiming(), new ArrayDeque<SubEvent>(event.getSubEvents()));
+    }
+    
+    private void evictOverflow() {
+        if (policy == Policy.UNBOUNDED) {
+            return;
+        }
+        int limit = policy == Policy.DISABLED ? 0 : maxEntries;
+        while (size.get() > limit) {
+            UUID oldest = order.pollLast();
+            if (oldest == null) {
+                return;
+            }
+            if (events.remove(oldest) != null) {
+                size.decrementAndGet();
+                evicted.increment();
+            }
+        }
+    }
+    
+    private record Capture(UUID proxyStubId, RecordingFilter filter) {
+        
+        boolean servedByProxy(ServeEvent event) {
+            return event.getStubMapping() != null && proxyStubId.equals(event.getStubMapping().getId());
+        }
+    }
+}
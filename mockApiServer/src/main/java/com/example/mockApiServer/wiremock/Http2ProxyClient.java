@@ -0,0 +1,99 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.common.NetworkAddressRules;
+import com.github.tomakehurst.wiremock.common.ProhibitedNetworkAddressException;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.HttpHeaders;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.http.client.HttpClient;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Upstream client for WireMock's proxy on the JDK HTTP client, which speaks HTTP/2 - negotiated
+ * over TLS, or as an h2c upgrade for plain HTTP - and falls back to HTTP/1.1 when the target
+ * does not support it. All requests to a target share one multiplexed connection.
+ */
+public class Http2ProxyClient implements HttpClient {
+    
+    // Connection-level headers the JDK client sets itself or HTTP/2 does not allow
+    private static final Set<String> SKIPPED_REQUEST_HEADERS = Set.of(
+            "connection", "content-length", "expect", "host", "keep-alive", "proxy-connection", "te",
+            "transfer-encoding", "upgrade");
+    
+    private final java.net.http.HttpClient client;
+    private final Duration readTimeout;
+    private final NetworkAddressRules targetRules;
+    
+    /**
+     * @param proxyVia Forward proxy to reach the target through, or null to connect directly
+     */
+    public Http2ProxyClient(SSLContext sslContext, InetSocketAddress proxyVia, Duration connectTimeout,
+                            Duration readTimeout, NetworkAddressRules targetRules) {
+        java.net.http.HttpClient.Builder builder = java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_2)
+                .followRedirects(java.net.http.HttpClient.Redirect.NEVER)
+                .connectTimeout(connectTimeout)
+                .sslContext(sslContext);
+        if (proxyVia != null) {
+            builder.proxy(ProxySelector.of(proxyVia));
+        }
+        this.client = builder.build();
+        this.readTimeout = readTimeout;
+        this.targetRules = targetRules;
+    }
+    
+    @Override
+    public Response execute(Request request) throws IOException {
+        URI uri = URI.create(request.getAbsoluteUrl());
+        if (!targetRules.isAllowed(uri.getHost())) {
+            throw new ProhibitedNetworkAddressException();
+        }
+        byte[] body = request.getBody();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .method(request.getMethod().getName(), body == null || body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        for (HttpHeader header : request.getHeaders().all()) {
+            if (!SKIPPED_REQUEST_HEADERS.contains(header.key().toLowerCase(Locale.ROOT))) {
+                header.values().forEach(value -> builder.header(header.key(), value));
+            }
+        }
+        
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the proxy target");
+        }
+        
+        List<HttpHeader> headers = response.headers().map().entrySet().stream()
+                .filter(entry -> !entry.getKey().startsWith(":"))
+                .map(entry -> new HttpHeader(entry.getKey(), entry.getValue()))
+                .toList();
+        return Response.response()
+                .status(response.statusCode())
+                .headers(new HttpHeaders(headers))
+                .protocol(protocol(response.version()))
+                .body(response.body())
+                .build();
+    }
+    
+    private static String protocol(java.net.http.HttpClient.Version version) {
+        return version == java.net.http.HttpClient.Version.HTTP_2 ? "HTTP/2.0" : "HTTP/1.1";
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.http.ThreadPoolFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import wiremock.org.eclipse.jetty.util.BlockingArrayQueue;
+import wiremock.org.eclipse.jetty.util.VirtualThreads;
+import wiremock.org.eclipse.jetty.util.thread.QueuedThreadPool;
+import wiremock.org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Builds the WireMock Jetty thread pool with a minimum size and an optionally bounded request queue,
+ * instead of WireMock's fixed pool with an unbounded queue. In virtual-thread mode Jetty keeps its
+ * pooled threads for selecting and accepting and runs each request on a virtual thread; this needs
+ * a Java 21+ runtime and falls back to the platform thread pool otherwise.
+ */
+public class JettyThreadPoolFactory implements ThreadPoolFactory {
+    
+    private static final Logger log = LoggerFactory.getLogger(JettyThreadPoolFactory.class);
+    private static final int IDLE_TIMEOUT_MILLIS = 60_000;
+    
+    private final int minThreads;
+    private final int maxQueuedRequests;
+    private final boolean virtualThreads;
+    
+    /**
+     * @param minThreads Threads kept alive when idle
+     * @param maxQueuedRequests Requests waiting for a thread before new ones are rejected (0 = unbounded)
+     * @param virtualThreads Whether to run requests on virtual threads when the runtime supports them
+     */
+    public JettyThreadPoolFactory(int minThreads, int maxQueuedRequests, boolean virtualThreads) {
+        this.minThreads = minThreads;
+        this.maxQueuedRequests = maxQueuedRequests;
+        this.virtualThreads = virtualThreads;
+    }
+    
+    @Override
+    public ThreadPool buildThreadPool(Options options) {
+        int maxThreads = options.containerThreads();
+        BlockingQueue<Runnable> queue = maxQueuedRequests > 0
+                ? new BlockingArrayQueue<>(Math.min(maxQueuedRequests, maxThreads), maxThreads, maxQueuedRequests)
+                : new BlockingArrayQueue<>(maxThreads, maxThreads);
+        QueuedThreadPool threadPool = new QueuedThreadPool(maxThreads, Math.min(minThreads, maxThreads), IDLE_TIMEOUT_MILLIS, queue);
+        threadPool.setName("wiremock-jetty");
+        
+        if (virtualThreads) {
+            if (VirtualThreads.areSupported()) {
+                threadPool.setVirtualThreadsExecutor(VirtualThreads.getDefaultVirtualThreadsExecutor());
+                log.info("WireMock requests run on virtual threads");
+            } else {
+                log.warn("Virtual threads requested but not supported by Java {}, using the platform thread pool",
+                        Runtime.version().feature());
+            }
+        }
+        log.info("WireMock thread pool: {}-{} threads, request queue {}", threadPool.getMinThreads(), maxThreads,
+                maxQueuedRequests > 0 ? maxQueuedRequests : "unbounded");
+        return threadPool;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.recording.ProxiedServeEventFilters;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Records proxied traffic in WireMock's request journal, with the journal's retention limits
+ * suspended for the duration so no exchange is lost. Stopping builds stub mappings from the
+ * journalled exchanges served by this recording's proxy stub.
+ */
+public class JournalRecorder implements TrafficRecorder {
+    
+    private static final Logger log = LoggerFactory.getLogger(JournalRecorder.class);
+    
+    private final BoundedRequestJournalStore journalStore;
+    private final RecordingFilter recordingFilter;
+    private final RecordedStubBuilder stubBuilder;
+    private final ProxiedServeEventFilters filters = new ProxiedServeEventFilters();
+    private volatile StubMapping proxyMapping;
+    
+    public JournalRecorder(BoundedRequestJournalStore journalStore, RecordingFilter recordingFilter,
+                           RecordedStubBuilder stubBuilder) {
+        this.journalStore = journalStore;
+        this.recordingFilter = recordingFilter;
+        this.stubBuilder = stubBuilder;
+    }
+    
+    @Override
+    public synchronized void start(WireMockServer server, String targetBaseUrl) {
+        if (proxyMapping != null) {
+            return;
+        }
+        StubMapping proxy = WireMock.proxyAllTo(targetBaseUrl).build();
+        journalStore.suspendLimits(proxy.getId(), recordingFilter);
+        proxyMapping = proxy;
+        server.addStubMapping(proxy);
+        log.info("Journal recording started, proxying to {}", targetBaseUrl);
+    }
+    
+    @Override
+    public boolean isRecording() {
+        return proxyMapping != null;
+    }
+    
+    @Override
+    public synchronized RecordedStubBuilder.Result stop(WireMockServer server) throws IOException {
+        if (proxyMapping == null) {
+            return new RecordedStubBuilder.Result(0, 0);
+        }
+        server.removeStubMapping(proxyMapping);
+        // The journal lists the newest exchange first
+        List<ServeEvent> exchanges = server.getAllServeEvents().stream()
+                .filter(serveEvent -> serveEvent.getStubMapping() != null
+                        && proxyMapping.getId().equals(serveEvent.getStubMapping().getId()))
+                .filter(filters)
+                .collect(Collectors.toCollection(ArrayList::new));
+        Collections.reverse(exchanges);
+        proxyMapping = null;
+        journalStore.resumeLimits();
+        
+        RecordedStubBuilder.Result result = stubBuilder.build(exchanges::forEach, server);
+        log.info("Journal recording finalized: {} exchanges, {} stub mappings created",
+                result.exchanges(), result.mappingsCreated());
+        return result;
+    }
+}
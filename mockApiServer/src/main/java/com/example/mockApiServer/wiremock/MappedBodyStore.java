@@ -0,0 +1,359 @@
+package com.example.mockApiServer.wiremock;
+
+import com.example.mockApiServer.service.snapshot.ContentHash;
+import com.github.tomakehurst.wiremock.common.InputStreamSource;
+import com.github.tomakehurst.wiremock.common.Json;
+import com.github.tomakehurst.wiremock.http.Body;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.store.BlobStore;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Response body store that serves large bodies from memory-mapped files instead of the Java heap.
+ * Inline bodies above the threshold are moved out of their stub into content-addressed files under
+ * {@code __files/.bodies}, and any body file above the threshold is mapped and streamed straight
+ * from the page cache. Smaller files go to the regular file-backed store. Inline bodies can be
+ * shared between stubs with identical content, and snapshot sets keep their body files under
+ * {@code __files/.sets}, one content-addressed file per distinct body, so versions that serve the
+ * same bytes hold them once on disk and, when mapped, once in memory.
+ */
+public class MappedBodyStore implements BlobStore {
+    
+    /**
+     * Directory under {@code __files} holding bodies moved out of stub mappings
+     */
+    public static final String OFFLOAD_DIRECTORY = ".bodies";
+    
+    /**
+     * Directory under {@code __files} holding the body files of loaded snapshot sets; not part of snapshots
+     */
+    public static final String SHARED_DIRECTORY = ".sets";
+    
+    private static final Logger log = LoggerFactory.getLogger(MappedBodyStore.class);
+    
+    private final BlobStore delegate;
+    private final Path filesRoot;
+    private final long thresholdBytes;
+    private final Map<String, MappedBody> mappedBodies = new ConcurrentHashMap<>();
+    // Canonical instance of each inline body still referenced by a stub
+    private final Map<Body, WeakReference<Body>> sharedBodies = new WeakHashMap<>();
+    private final AtomicLong sharedBodyCount = new AtomicLong();
+    
+    public MappedBodyStore(BlobStore delegate, Path filesRoot, long thresholdBytes) {
+        this.delegate = delegate;
+        this.filesRoot = filesRoot.toAbsolutePath().normalize();
+        this.thresholdBytes = thresholdBytes;
+    }
+    
+    /**
+     * Move an inline response body above the threshold into a body file and point the stub at it
+     * @param stub The mapping to rewrite in place
+     * @return The same mapping, for chaining
+     */
+    public StubMapping offload(StubMapping stub) {
+        ResponseDefinition response = stub.getResponse();
+        if (thresholdBytes <= 0 || response == null || !response.specifiesBodyContent()) {
+            return stub;
+        }
+        byte[] body = response.getByteBody();
+        if (body == null || body.length < thresholdBytes) {
+            return stub;
+        }
+        
+        MessageDigest digest = ContentHash.newDigest();
+        digest.update(body);
+        String key = OFFLOAD_DIRECTORY + "/" + ContentHash.toHex(digest);
+        try {
+            writeIfAbsent(key, body);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to offload response body for stub " + stub.getId(), e);
+        }
+        
+        Map<String, Object> definition = Json.objectToMap(response);
+        definition.remove("body");
+        definition.remove("jsonBody");
+        definition.remove("base64Body");
+        definition.put("bodyFileName", key);
+        stub.setResponse(Json.mapToObject(definition, ResponseDefinition.class));
+        log.debug("Offloaded {} byte response body of stub {} to {}", body.length, stub.getId(), key);
+        return stub;
+    }
+    
+    /**
+     * Point the stub's inline body at an identical body already held by another stub, if there is one
+     * @param stub The mapping to rewrite in place
+     * @return The same mapping, for chaining
+     */
+    public StubMapping share(StubMapping stub) {
+        ResponseDefinition response = stub.getResponse();
+        if (response == null || response.getBodyFileName() != null || !response.specifiesBodyContent()) {
+            return stub;
+        }
+        Body body = response.getReponseBody();
+        Body canonical;
+        synchronized (sharedBodies) {
+            WeakReference<Body> existing = sharedBodies.get(body);
+            canonical = existing != null ? existing.get() : null;
+            if (canonical == null) {
+                sharedBodies.put(body, new WeakReference<>(body));
+                return stub;
+            }
+        }
+        if (canonical != body) {
+            stub.setResponse(new ResponseDefinition(response.getStatus(), response.getStatusMessage(), canonical,
+                    null, response.getHeaders(), response.getAdditionalProxyRequestHeaders(),
+                    response.getFixedDelayMilliseconds(), response.getDelayDistribution(),
+                    response.getChunkedDribbleDelay(), response.getProxyBaseUrl(),
+                    response.getProxyUrlPrefixToRemove(), response.getFault(), response.getTransformers(),
+                    response.getTransformerParameters(), response.isFromConfiguredStub()));
+            sharedBodyCount.incrementAndGet();
+        }
+        return stub;
+    }
+    
+    /**
+     * Store a body file for a snapshot set under its content hash, unless an identical one is already stored
+     * @return The body file key to reference from a stub's bodyFileName
+     */
+    public String putShared(InputStream content) throws IOException {
+        Path directory = filesRoot.resolve(SHARED_DIRECTORY);
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, "body-", ".tmp");
+        try {
+            MessageDigest digest = ContentHash.newDigest();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tempFile), digest)) {
+                content.transferTo(out);
+            }
+            String key = sharedKey(ContentHash.toHex(digest));
+            Path file = filesRoot.resolve(key);
+            if (!Files.exists(file)) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return key;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
+    /**
+     * Key of a snapshot set body file with the given SHA-256, whether or not it is stored yet
+     */
+    public String sharedKey(String sha256) {
+        return SHARED_DIRECTORY + "/" + sha256;
+    }
+    
+    public boolean contains(String key) {
+        return Files.isRegularFile(filesRoot.resolve(key));
+    }
+    
+    /**
+     * Remove every snapshot set body file, for when no sets are loaded
+     */
+    public void clearShared() throws IOException {
+        Path directory = filesRoot.resolve(SHARED_DIRECTORY);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                mappedBodies.remove(filesRoot.relativize(file).toString().replace("\\", "/"));
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+    
+    @Override
+    public InputStreamSource getStreamSource(String key) {
+        MappedBody mapped = mapped(key);
+        return mapped != null ? mapped::newStream : delegate.getStreamSource(key);
+    }
+    
+    @Override
+    public Optional<InputStream> getStream(String key) {
+        MappedBody mapped = mapped(key);
+        return mapped != null ? Optional.of(mapped.newStream()) : delegate.getStream(key);
+    }
+    
+    @Override
+    public Optional<byte[]> get(String key) {
+        MappedBody mapped = mapped(key);
+        if (mapped == null) {
+            return delegate.get(key);
+        }
+        ByteBuffer buffer = mapped.buffer().duplicate();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return Optional.of(bytes);
+    }
+    
+    @Override
+    public Stream<String> getAllKeys() {
+        return delegate.getAllKeys();
+    }
+    
+    @Override
+    public void put(String key, byte[] content) {
+        mappedBodies.remove(key);
+        delegate.put(key, content);
+    }
+    
+    @Override
+    public void remove(String key) {
+        mappedBodies.remove(key);
+        delegate.remove(key);
+    }
+    
+    @Override
+    public void clear() {
+        mappedBodies.clear();
+        delegate.clear();
+    }
+    
+    public int getMappedCount() {
+        return mappedBodies.size();
+    }
+    
+    public long getMappedBytes() {
+        return mappedBodies.values().stream().mapToLong(MappedBody::size).sum();
+    }
+    
+    /**
+     * Inline bodies that were replaced by an identical body held by another stub
+     */
+    public long getSharedBodyCount() {
+        return sharedBodyCount.get();
+    }
+    
+    /**
+     * Look up or create the mapping for a body file, or return null if it should not be mapped.
+     * The file is stat-ed on every call so a body replaced by a snapshot restore is remapped.
+     */
+    private MappedBody mapped(String key) {
+        if (thresholdBytes <= 0) {
+            return null;
+        }
+        Path file = filesRoot.resolve(key).normalize();
+        if (!file.startsWith(filesRoot)) {
+            return null;
+        }
+        
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            mappedBodies.remove(key);
+            return null;
+        }
+        long size = attributes.size();
+        if (!attributes.isRegularFile() || size < thresholdBytes || size > Integer.MAX_VALUE) {
+            mappedBodies.remove(key);
+            return null;
+        }
+        
+        MappedBody current = mappedBodies.get(key);
+        if (current != null && current.size() == size
+                && current.lastModified() == attributes.lastModifiedTime().toMillis()
+                && Objects.equals(current.fileKey(), attributes.fileKey())) {
+            return current;
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            MappedBody mapped = new MappedBody(channel.map(FileChannel.MapMode.READ_ONLY, 0, size),
+                    size, attributes.lastModifiedTime().toMillis(), attributes.fileKey());
+            mappedBodies.put(key, mapped);
+            log.debug("Mapped response body {} ({} bytes)", key, size);
+            return mapped;
+        } catch (IOException e) {
+            log.warn("Failed to map response body {}, serving it from the file store", key, e);
+            return null;
+        }
+    }
+    
+    private void writeIfAbsent(String key, byte[] body) throws IOException {
+        Path file = filesRoot.resolve(key);
+        if (Files.exists(file)) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        // Content-addressed, so a concurrent writer of the same key produces identical bytes
+        Path tempFile = Files.createTempFile(file.getParent(), "body-", ".tmp");
+        try {
+            Files.write(tempFile, body);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
+    private record MappedBody(MappedByteBuffer buffer, long size, long lastModified, Object fileKey) {
+        
+        InputStream newStream() {
+            return new ByteBufferInputStream(buffer.duplicate());
+        }
+    }
+    
+    /**
+     * Stream over a private view of a mapped buffer, so concurrent readers never share a position
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        
+        private final ByteBuffer buffer;
+        
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+        
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+        
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+        
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.store.BlobStore;
+import com.github.tomakehurst.wiremock.store.DefaultStores;
+import com.github.tomakehurst.wiremock.store.RequestJournalStore;
+import com.github.tomakehurst.wiremock.store.StubMappingStore;
+
+import static com.github.tomakehurst.wiremock.core.WireMockApp.FILES_ROOT;
+
+/**
+ * WireMock stores with the stub mapping store replaced by a hot-swappable one,
+ * response body files served through the memory-mapped body store
+ * and the request journal bounded by the configured policy
+ */
+public class MockServerStores extends DefaultStores {
+    
+    private final SwappableStubMappingStore stubMappingStore;
+    private final MappedBodyStore bodyStore;
+    private final BoundedRequestJournalStore requestJournalStore;
+    
+    public MockServerStores(FileSource fileRoot, SwappableStubMappingStore stubMappingStore, MappedBodyStore bodyStore,
+                            BoundedRequestJournalStore requestJournalStore) {
+        super(fileRoot);
+        this.stubMappingStore = stubMappingStore;
+        this.bodyStore = bodyStore;
+        this.requestJournalStore = requestJournalStore;
+    }
+    
+    @Override
+    public StubMappingStore getStubStore() {
+        return stubMappingStore;
+    }
+    
+    @Override
+    public RequestJournalStore getRequestJournalStore() {
+        return requestJournalStore;
+    }
+    
+    @Override
+    public BlobStore getBlobStore(String name) {
+        return FILES_ROOT.equals(name) ? bodyStore : super.getBlobStore(name);
+    }
+}
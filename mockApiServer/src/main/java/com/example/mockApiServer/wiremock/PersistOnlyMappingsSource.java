@@ -0,0 +1,129 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.common.Json;
+import com.github.tomakehurst.wiremock.common.filemaker.FilenameMaker;
+import com.github.tomakehurst.wiremock.standalone.MappingsLoader;
+import com.github.tomakehurst.wiremock.standalone.MappingsSource;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import com.github.tomakehurst.wiremock.stubbing.StubMappings;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Mappings source that persists stubs like WireMock's JSON file source but does not scan the
+ * directory itself. The application loads the mappings directory in parallel at startup, so
+ * WireMock's own startup load is skipped; a reset to the default mappings reloads the directory
+ * through the loader the application registers. The loader reports which file each stub came
+ * from, so a save overwrites that file and a remove deletes it, and importing a stub exactly as it
+ * was read does not write it back.
+ */
+public class PersistOnlyMappingsSource implements MappingsSource {
+    
+    private final FileSource mappingsFileSource;
+    private final Path mappingsRoot;
+    private final FilenameMaker filenameMaker;
+    // File of each persisted stub, and its reverse, since one file holds one stub
+    private final Map<UUID, String> fileNames = new HashMap<>();
+    private final Map<String, UUID> stubIds = new HashMap<>();
+    // Stubs as parsed from their file, which WireMock would otherwise save again on import
+    private final Map<UUID, StubMapping> unsaved = new HashMap<>();
+    private volatile MappingsLoader reloader;
+    
+    public PersistOnlyMappingsSource(FileSource mappingsFileSource, FilenameMaker filenameMaker) {
+        this.mappingsFileSource = mappingsFileSource;
+        this.mappingsRoot = Paths.get(mappingsFileSource.getPath()).toAbsolutePath().normalize();
+        this.filenameMaker = filenameMaker;
+    }
+    
+    /**
+     * Record that a stub was read from a file under the mappings directory
+     */
+    public synchronized void loadedFrom(StubMapping stub, Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        if (!absolute.startsWith(mappingsRoot)) {
+            return;
+        }
+        String fileName = mappingsRoot.relativize(absolute).toString().replace("\\", "/");
+        track(stub.getId(), fileName);
+        unsaved.put(stub.getId(), stub);
+    }
+    
+    public Path getMappingsRoot() {
+        return mappingsRoot;
+    }
+    
+    /**
+     * Reload the mappings directory with this loader whenever WireMock resets to its default mappings
+     */
+    public void reloadWith(MappingsLoader reloader) {
+        this.reloader = reloader;
+    }
+    
+    @Override
+    public void loadMappingsInto(StubMappings stubMappings) {
+        // Nothing yet during WireMock's startup: WireMockController loads the directory once the server exists
+        MappingsLoader loader = reloader;
+        if (loader != null) {
+            loader.loadMappingsInto(stubMappings);
+        }
+    }
+    
+    @Override
+    public synchronized void save(List<StubMapping> stubMappings) {
+        stubMappings.forEach(this::save);
+    }
+    
+    @Override
+    public synchronized void save(StubMapping stubMapping) {
+        UUID id = stubMapping.getId();
+        // The same instance, even if the store has since offloaded its body; an edit is a new instance
+        if (unsaved.remove(id) == stubMapping) {
+            stubMapping.setDirty(false);
+            return;
+        }
+        String fileName = fileNames.get(id);
+        if (fileName == null) {
+            fileName = filenameMaker.filenameFor(stubMapping);
+            track(id, fileName);
+        }
+        mappingsFileSource.writeTextFile(fileName, Json.writePrivate(stubMapping));
+        stubMapping.setDirty(false);
+    }
+    
+    @Override
+    public synchronized void remove(StubMapping stubMapping) {
+        unsaved.remove(stubMapping.getId());
+        String fileName = fileNames.remove(stubMapping.getId());
+        if (fileName != null) {
+            stubIds.remove(fileName);
+            mappingsFileSource.deleteFile(fileName);
+        }
+    }
+    
+    @Override
+    public synchronized void removeAll() {
+        fileNames.values().forEach(mappingsFileSource::deleteFile);
+        fileNames.clear();
+        stubIds.clear();
+        unsaved.clear();
+    }
+    
+    private void track(UUID id, String fileName) {
+        // A file rewritten with another stub no longer belongs to the stub it held before
+        UUID previousId = stubIds.put(fileName, id);
+        if (previousId != null && !previousId.equals(id)) {
+            fileNames.remove(previousId);
+            unsaved.remove(previousId);
+        }
+        String previousFile = fileNames.put(id, fileName);
+        if (previousFile != null && !previousFile.equals(fileName)) {
+            stubIds.remove(previousFile);
+        }
+    }
+}
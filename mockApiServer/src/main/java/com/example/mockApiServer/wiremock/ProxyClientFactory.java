@@ -0,0 +1,213 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.common.ProxySettings;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.http.NetworkAddressRulesAdheringDnsResolver;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.http.client.ApacheBackedHttpClient;
+import com.github.tomakehurst.wiremock.http.client.HttpClient;
+import com.github.tomakehurst.wiremock.http.client.HttpClientFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import wiremock.org.apache.hc.client5.http.auth.AuthScope;
+import wiremock.org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
+import wiremock.org.apache.hc.client5.http.config.ConnectionConfig;
+import wiremock.org.apache.hc.client5.http.config.RequestConfig;
+import wiremock.org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
+import wiremock.org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import wiremock.org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import wiremock.org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import wiremock.org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import wiremock.org.apache.hc.client5.http.ssl.SSLConnectionSocketFactoryBuilder;
+import wiremock.org.apache.hc.client5.http.ssl.TrustAllStrategy;
+import wiremock.org.apache.hc.core5.http.HttpHost;
+import wiremock.org.apache.hc.core5.pool.PoolStats;
+import wiremock.org.apache.hc.core5.ssl.SSLContexts;
+import wiremock.org.apache.hc.core5.util.TimeValue;
+import wiremock.org.apache.hc.core5.util.Timeout;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Builds the clients WireMock's proxy uses to reach the target. WireMock's own client closes the
+ * upstream connection after every exchange; this one keeps connections alive in a sized pool, or
+ * multiplexes over HTTP/2, with separate connect and read timeouts. An optional cap on concurrent
+ * upstream calls makes requests beyond it wait their turn, up to a queue timeout, so more parallel
+ * test workers can record without overloading the target.
+ */
+public class ProxyClientFactory implements HttpClientFactory {
+    
+    private static final Logger log = LoggerFactory.getLogger(ProxyClientFactory.class);
+    
+    private final Settings settings;
+    private final Semaphore permits;
+    private final Counter rejected;
+    private final List<PoolingHttpClientConnectionManager> pools = new CopyOnWriteArrayList<>();
+    
+    /**
+     * @param maxConnections Pooled connections per target (HTTP/1.1 only)
+     * @param keepAlive How long an idle connection is kept for reuse; zero closes it after each exchange
+     * @param http2 Whether to speak HTTP/2 to targets that support it
+     * @param maxConcurrent Upstream calls in flight at once, 0 = unlimited
+     * @param queueTimeout How long a call beyond the cap waits for a slot before failing
+     */
+    public record Settings(int maxConnections, Duration connectTimeout, Duration readTimeout, Duration keepAlive,
+                           boolean http2, int maxConcurrent, Duration queueTimeout) {
+    }
+    
+    public ProxyClientFactory(Settings settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.permits = settings.maxConcurrent() > 0 ? new Semaphore(settings.maxConcurrent(), true) : null;
+        this.rejected = Counter.builder("wiremock.proxy.upstream.rejected")
+                .description("Proxied requests that timed out waiting for an upstream concurrency slot")
+                .register(meterRegistry);
+        Gauge.builder("wiremock.proxy.upstream.active", this, ProxyClientFactory::getActive)
+                .description("Proxied requests currently being sent to the target")
+                .register(meterRegistry);
+        Gauge.builder("wiremock.proxy.upstream.queued", this, ProxyClientFactory::getQueued)
+                .description("Proxied requests waiting for an upstream concurrency slot")
+                .register(meterRegistry);
+        Gauge.builder("wiremock.proxy.connections", this, factory -> factory.poolTotal(PoolStats::getLeased))
+                .description("Pooled upstream connections")
+                .tag("state", "leased")
+                .register(meterRegistry);
+        Gauge.builder("wiremock.proxy.connections", this, factory -> factory.poolTotal(PoolStats::getAvailable))
+                .description("Pooled upstream connections")
+                .tag("state", "available")
+                .register(meterRegistry);
+    }
+    
+    @Override
+    public HttpClient buildHttpClient(Options options, boolean trustAllCertificates, List<String> trustedHosts,
+                                      boolean useSystemProperties) {
+        SSLContext sslContext = sslContext(trustAllCertificates);
+        HttpClient client = settings.http2()
+                ? new Http2ProxyClient(sslContext, proxyAddress(options.proxyVia()), settings.connectTimeout(),
+                        settings.readTimeout(), options.getProxyTargetRules())
+                : pooledClient(options, sslContext, trustAllCertificates, useSystemProperties);
+        log.info("Proxy client: {}, {} connections, keep-alive {}, connect/read timeout {}/{}, concurrency {}",
+                settings.http2() ? "HTTP/2" : "HTTP/1.1 pooled", settings.maxConnections(), settings.keepAlive(),
+                settings.connectTimeout(), settings.readTimeout(),
+                permits != null ? settings.maxConcurrent() : "unlimited");
+        return permits != null ? request -> executeWithPermit(client, request) : client;
+    }
+    
+    public int getActive() {
+        return permits != null ? settings.maxConcurrent() - permits.availablePermits() : 0;
+    }
+    
+    public int getQueued() {
+        return permits != null ? permits.getQueueLength() : 0;
+    }
+    
+    public long getRejectedCount() {
+        return (long) rejected.count();
+    }
+    
+    private Response executeWithPermit(HttpClient client, Request request) throws IOException {
+        try {
+            if (!permits.tryAcquire(settings.queueTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new IOException("No upstream slot free within " + settings.queueTimeout().toMillis()
+                        + " ms, " + settings.maxConcurrent() + " requests already in flight");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an upstream slot");
+        }
+        try {
+            return client.execute(request);
+        } finally {
+            permits.release();
+        }
+    }
+    
+    private HttpClient pooledClient(Options options, SSLContext sslContext, boolean trustAllCertificates,
+                                    boolean useSystemProperties) {
+        boolean keepAlive = !settings.keepAlive().isZero();
+        SSLConnectionSocketFactoryBuilder sslSocketFactory = SSLConnectionSocketFactoryBuilder.create()
+                .setSslContext(sslContext);
+        if (trustAllCertificates) {
+            sslSocketFactory.setHostnameVerifier(NoopHostnameVerifier.INSTANCE);
+        }
+        PoolingHttpClientConnectionManager pool = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.maxConnections())
+                .setMaxConnPerRoute(settings.maxConnections())
+                .setDnsResolver(new NetworkAddressRulesAdheringDnsResolver(options.getProxyTargetRules()))
+                .setSSLSocketFactory(sslSocketFactory.build())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(settings.connectTimeout()))
+                        .setSocketTimeout(Timeout.of(settings.readTimeout()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        pools.add(pool);
+        
+        HttpClientBuilder builder = HttpClientBuilder.create()
+                .disableAuthCaching()
+                .disableAutomaticRetries()
+                .disableCookieManagement()
+                .disableRedirectHandling()
+                .disableContentCompression()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.of(settings.readTimeout()))
+                        .build());
+        if (keepAlive) {
+            TimeValue keepAliveTime = TimeValue.of(settings.keepAlive());
+            builder.setKeepAliveStrategy((response, context) -> keepAliveTime)
+                    .evictIdleConnections(keepAliveTime);
+        } else {
+            builder.setConnectionReuseStrategy((request, response, context) -> false);
+        }
+        if (useSystemProperties) {
+            builder.useSystemProperties();
+        }
+        
+        ProxySettings proxyVia = options.proxyVia();
+        if (proxyVia != ProxySettings.NO_PROXY) {
+            HttpHost proxyHost = new HttpHost(proxyVia.host(), proxyVia.port());
+            builder.setProxy(proxyHost);
+            if (proxyVia.getUsername() != null && !proxyVia.getUsername().isEmpty()) {
+                BasicCredentialsProvider credentials = new BasicCredentialsProvider();
+                credentials.setCredentials(new AuthScope(proxyHost),
+                        new UsernamePasswordCredentials(proxyVia.getUsername(), proxyVia.getPassword().toCharArray()));
+                builder.setDefaultCredentialsProvider(credentials);
+            }
+        }
+        return new ApacheBackedHttpClient(builder.build());
+    }
+    
+    private int poolTotal(ToIntFunction<PoolStats> stat) {
+        return pools.stream().mapToInt(pool -> stat.applyAsInt(pool.getTotalStats())).sum();
+    }
+    
+    private static SSLContext sslContext(boolean trustAllCertificates) {
+        if (!trustAllCertificates) {
+            return SSLContexts.createSystemDefault();
+        }
+        try {
+            return SSLContexts.custom().loadTrustMaterial(TrustAllStrategy.INSTANCE).build();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot build a trust-all SSL context for the proxy client", e);
+        }
+    }
+    
+    private static InetSocketAddress proxyAddress(ProxySettings proxyVia) {
+        return proxyVia == ProxySettings.NO_PROXY ? null : new InetSocketAddress(proxyVia.host(), proxyVia.port());
+    }
+}
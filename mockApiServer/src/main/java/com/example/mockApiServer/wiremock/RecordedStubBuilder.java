@@ -0,0 +1,136 @@
+package com.example.mockApiServer.wiremock;
+
+import com.example.mockApiServer.service.snapshot.ContentHash;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.matching.RequestPattern;
+import com.github.tomakehurst.wiremock.recording.RecordSpec;
+import com.github.tomakehurst.wiremock.recording.SnapshotStubMappingGenerator;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Turns recorded exchanges into persistent stub mappings with record-time deduplication.
+ * Exchanges with the same request and identical responses (status, content type and body)
+ * collapse into one stub; only when the responses to a request actually change does it become
+ * a scenario, with one state per run of identical responses. The exchanges are read twice,
+ * so only request patterns and response hashes are ever held in memory.
+ */
+public class RecordedStubBuilder {
+    
+    private final MappedBodyStore bodyStore;
+    
+    /**
+     * @param bodyStore Store that large recorded response bodies are moved into
+     */
+    public RecordedStubBuilder(MappedBodyStore bodyStore) {
+        this.bodyStore = bodyStore;
+    }
+    
+    /**
+     * Recorded exchanges in the order they happened, which can be iterated more than once
+     */
+    @FunctionalInterface
+    public interface Exchanges {
+        void forEach(Consumer<ServeEvent> action) throws IOException;
+    }
+    
+    /**
+     * @param exchanges Number of exchanges recorded
+     * @param mappingsCreated Number of stub mappings registered for them
+     */
+    public record Result(int exchanges, int mappingsCreated) {
+        
+        /**
+         * Fraction of recorded exchanges that did not need a stub mapping of their own
+         */
+        public double dedupRatio() {
+            return exchanges == 0 ? 0 : 1 - (double) mappingsCreated / exchanges;
+        }
+    }
+    
+    public Result build(Exchanges exchanges, WireMockServer server) throws IOException {
+        SnapshotStubMappingGenerator generator = new SnapshotStubMappingGenerator(
+                RecordSpec.DEFAULTS.getCaptureHeaders(), RecordSpec.DEFAULTS.getRequestBodyPatternFactory());
+        
+        // First pass: the sequence of distinct consecutive responses to each request
+        Map<RequestPattern, List<String>> responseRuns = new HashMap<>();
+        int[] recorded = {0};
+        exchanges.forEach(serveEvent -> {
+            StubMapping stub = generator.apply(serveEvent);
+            List<String> runs = responseRuns.computeIfAbsent(stub.getRequest(), request -> new ArrayList<>(1));
+            String responseHash = responseHash(stub.getResponse());
+            if (runs.isEmpty() || !runs.get(runs.size() - 1).equals(responseHash)) {
+                runs.add(responseHash);
+            }
+            recorded[0]++;
+        });
+        
+        // Second pass: one stub at the start of each run, in a scenario when a request has several
+        Map<RequestPattern, String> lastResponse = new HashMap<>();
+        Map<RequestPattern, Integer> state = new HashMap<>();
+        Map<RequestPattern, String> scenarioNames = new HashMap<>();
+        int[] created = {0};
+        exchanges.forEach(serveEvent -> {
+            StubMapping stub = generator.apply(serveEvent);
+            RequestPattern request = stub.getRequest();
+            String responseHash = responseHash(stub.getResponse());
+            if (responseHash.equals(lastResponse.put(request, responseHash))) {
+                return;
+            }
+            int runs = responseRuns.get(request).size();
+            if (runs > 1) {
+                int occurrence = state.merge(request, 1, Integer::sum);
+                String scenarioName = scenarioNames.computeIfAbsent(request,
+                        pattern -> "scenario-" + (scenarioNames.size() + 1) + "-" + safeName(stub));
+                putInScenario(stub, scenarioName, occurrence, runs);
+            }
+            bodyStore.offload(stub);
+            stub.setPersistent(true);
+            server.addStubMapping(stub);
+            created[0]++;
+        });
+        return new Result(recorded[0], created[0]);
+    }
+    
+    private static String responseHash(ResponseDefinition response) {
+        MessageDigest digest = ContentHash.newDigest();
+        digest.update((response.getStatus() + "\n").getBytes(StandardCharsets.UTF_8));
+        if (response.getHeaders() != null && response.getHeaders().getContentTypeHeader().isPresent()) {
+            digest.update(response.getHeaders().getContentTypeHeader().firstValue().getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) '\n');
+        byte[] body = response.getByteBody();
+        if (body != null) {
+            digest.update(body);
+        }
+        return ContentHash.toHex(digest);
+    }
+    
+    /**
+     * The nth distinct response answers in state n and moves the scenario on;
+     * the last one keeps answering once the recorded sequence is exhausted
+     */
+    private static void putInScenario(StubMapping stub, String scenarioName, int occurrence, int total) {
+        stub.setScenarioName(scenarioName);
+        stub.setRequiredScenarioState(occurrence == 1 ? Scenario.STARTED : scenarioName + "-" + occurrence);
+        if (occurrence < total) {
+            stub.setNewScenarioState(scenarioName + "-" + (occurrence + 1));
+        }
+    }
+    
+    private static String safeName(StubMapping stub) {
+        String url = stub.getRequest().getUrl() != null ? stub.getRequest().getUrl() : stub.getRequest().getUrlPath();
+        return url == null ? "request" : url.replaceAll("[^A-Za-z0-9]+", "-").replaceAll("^-|-$", "");
+    }
+}
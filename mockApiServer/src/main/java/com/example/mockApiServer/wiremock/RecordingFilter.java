@@ -0,0 +1,126 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.http.Request;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which proxied exchanges a recording captures, from host, method and path-prefix allow
+ * and deny lists. An exchange is recorded when it satisfies every non-empty allow list and no deny
+ * entry. Hosts and methods are hash lookups and prefixes are grouped by length, so a decision costs
+ * one set lookup per distinct prefix length rather than a scan of every rule.
+ */
+public class RecordingFilter {
+    
+    private final Set<String> allowHosts;
+    private final Set<String> allowMethods;
+    private final PrefixSet allowPrefixes;
+    private final Set<String> denyHosts;
+    private final Set<String> denyMethods;
+    private final PrefixSet denyPrefixes;
+    private final Counter recorded;
+    private final Counter skipped;
+    
+    public RecordingFilter(Collection<String> allowHosts, Collection<String> allowMethods, Collection<String> allowPrefixes,
+                           Collection<String> denyHosts, Collection<String> denyMethods, Collection<String> denyPrefixes,
+                           MeterRegistry meterRegistry) {
+        this.allowHosts = normalize(allowHosts, host -> host.toLowerCase(Locale.ROOT));
+        this.allowMethods = normalize(allowMethods, method -> method.toUpperCase(Locale.ROOT));
+        this.allowPrefixes = new PrefixSet(allowPrefixes);
+        this.denyHosts = normalize(denyHosts, host -> host.toLowerCase(Locale.ROOT));
+        this.denyMethods = normalize(denyMethods, method -> method.toUpperCase(Locale.ROOT));
+        this.denyPrefixes = new PrefixSet(denyPrefixes);
+        this.recorded = Counter.builder("wiremock.recording.exchanges")
+                .description("Proxied exchanges considered for recording")
+                .tag("result", "recorded")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("wiremock.recording.exchanges")
+                .description("Proxied exchanges considered for recording")
+                .tag("result", "skipped")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Decide whether to record an exchange for this request, counting the outcome
+     */
+    public boolean shouldRecord(Request request) {
+        boolean record = matches(request);
+        (record ? recorded : skipped).increment();
+        return record;
+    }
+    
+    public long getRecordedCount() {
+        return (long) recorded.count();
+    }
+    
+    public long getSkippedCount() {
+        return (long) skipped.count();
+    }
+    
+    private boolean matches(Request request) {
+        String host = request.getHost() != null ? request.getHost().toLowerCase(Locale.ROOT) : "";
+        String method = request.getMethod().getName();
+        String path = path(request.getUrl());
+        
+        if (denyHosts.contains(host) || denyMethods.contains(method) || denyPrefixes.matches(path)) {
+            return false;
+        }
+        return (allowHosts.isEmpty() || allowHosts.contains(host))
+                && (allowMethods.isEmpty() || allowMethods.contains(method))
+                && (allowPrefixes.isEmpty() || allowPrefixes.matches(path));
+    }
+    
+    private static String path(String url) {
+        int query = url.indexOf('?');
+        return query < 0 ? url : url.substring(0, query);
+    }
+    
+    private static Set<String> normalize(Collection<String> values, Function<String, String> toCase) {
+        return values.stream()
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .map(toCase)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+    
+    /**
+     * Path prefixes grouped by length, checked with one substring lookup per distinct length
+     */
+    private static class PrefixSet {
+        
+        private final Map<Integer, Set<String>> prefixesByLength = new TreeMap<>();
+        
+        PrefixSet(Collection<String> prefixes) {
+            prefixes.stream()
+                    .map(String::trim)
+                    .filter(prefix -> !prefix.isEmpty())
+                    .forEach(prefix -> prefixesByLength.computeIfAbsent(prefix.length(), length -> new HashSet<>()).add(prefix));
+        }
+        
+        boolean isEmpty() {
+            return prefixesByLength.isEmpty();
+        }
+        
+        boolean matches(String path) {
+            for (Map.Entry<Integer, Set<String>> entry : prefixesByLength.entrySet()) {
+                int length = entry.getKey();
+                if (length > path.length()) {
+                    return false;
+                }
+                if (entry.getValue().contains(path.substring(0, length))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.extension.requestfilter.RequestFilterAction;
+import com.github.tomakehurst.wiremock.extension.requestfilter.RequestWrapper;
+import com.github.tomakehurst.wiremock.extension.requestfilter.StubRequestFilterV2;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+
+/**
+ * Routes stub requests to a loaded snapshot set. A request that already carries the set header
+ * is left alone; otherwise a path starting with {@code <prefix>/<set>/} has the prefix stripped and
+ * the header added, and, when host routing is on, so does a request whose first host label names a
+ * loaded set (e.g. {@code v2.mocks.local}). Anything else is served from the live set.
+ */
+public class SnapshotSetRouter implements StubRequestFilterV2 {
+    
+    private final SwappableStubMappingStore stubMappingStore;
+    private final String header;
+    private final String pathPrefix;
+    private final boolean hostRouting;
+    
+    /**
+     * @param pathPrefix Path under which sets are addressed by name, or empty to disable path routing
+     * @param hostRouting Whether the first label of the Host header selects a set
+     */
+    public SnapshotSetRouter(SwappableStubMappingStore stubMappingStore, String pathPrefix, boolean hostRouting) {
+        this.stubMappingStore = stubMappingStore;
+        this.header = stubMappingStore.getSetHeader();
+        this.pathPrefix = pathPrefix.replaceAll("/+$", "");
+        this.hostRouting = hostRouting;
+    }
+    
+    @Override
+    public String getName() {
+        return "snapshot-set-router";
+    }
+    
+    @Override
+    public RequestFilterAction filter(Request request, ServeEvent serveEvent) {
+        if (request.containsHeader(header)) {
+            return RequestFilterAction.continueWith(request);
+        }
+        
+        String url = request.getUrl();
+        if (!pathPrefix.isEmpty() && url.startsWith(pathPrefix + "/")) {
+            int start = pathPrefix.length() + 1;
+            int end = url.indexOf('/', start);
+            String set = end > start ? url.substring(start, end) : null;
+            if (set != null && stubMappingStore.hasSet(set)) {
+                String prefix = pathPrefix + "/" + set;
+                return RequestFilterAction.continueWith(RequestWrapper.create()
+                        .transformAbsoluteUrl(absoluteUrl -> stripPrefix(absoluteUrl, prefix))
+                        .addHeader(header, set)
+                        .wrap(request));
+            }
+        }
+        
+        if (hostRouting) {
+            String host = request.getHost();
+            int dot = host != null ? host.indexOf('.') : -1;
+            if (dot > 0 && stubMappingStore.hasSet(host.substring(0, dot))) {
+                return RequestFilterAction.continueWith(RequestWrapper.create()
+                        .addHeader(header, host.substring(0, dot))
+                        .wrap(request));
+            }
+        }
+        return RequestFilterAction.continueWith(request);
+    }
+    
+    private static String stripPrefix(String absoluteUrl, String prefix) {
+        int pathStart = absoluteUrl.indexOf('/', absoluteUrl.indexOf("://") + 3);
+        if (pathStart < 0 || !absoluteUrl.startsWith(prefix, pathStart)) {
+            return absoluteUrl;
+        }
+        return absoluteUrl.substring(0, pathStart) + absoluteUrl.substring(pathStart + prefix.length());
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.Json;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ServeEventListener;
+import com.github.tomakehurst.wiremock.recording.ProxiedServeEventFilters;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Records proxied traffic without WireMock's in-memory journal. Every proxied exchange is appended
+ * to a JSON-lines log as soon as it completes, and stopping turns the log into stub mappings one
+ * exchange at a time. A log left behind by a crash is kept and is finalized by the next stop.
+ */
+public class StreamingRecorder implements ServeEventListener, TrafficRecorder {
+    
+    private static final Logger log = LoggerFactory.getLogger(StreamingRecorder.class);
+    
+    private final Path logFile;
+    private final RecordedStubBuilder stubBuilder;
+    private final RecordingFilter recordingFilter;
+    private final ProxiedServeEventFilters filters = new ProxiedServeEventFilters();
+    private final Object writeLock = new Object();
+    // Both guarded by writeLock: Jetty threads read them for every completed request
+    private BufferedWriter writer;
+    private StubMapping proxyMapping;
+    private long exchangesRecorded;
+    
+    /**
+     * @param logFile Exchange log, appended to while recording
+     * @param stubBuilder Builds the stub mappings from the log when recording stops
+     * @param recordingFilter Decides which proxied exchanges are logged
+     */
+    public StreamingRecorder(Path logFile, RecordedStubBuilder stubBuilder, RecordingFilter recordingFilter) {
+        this.logFile = logFile;
+        this.stubBuilder = stubBuilder;
+        this.recordingFilter = recordingFilter;
+    }
+    
+    @Override
+    public String getName() {
+        return "streaming-recorder";
+    }
+    
+    @Override
+    public void start(WireMockServer server, String targetBaseUrl) throws IOException {
+        StubMapping proxy = WireMock.proxyAllTo(targetBaseUrl).build();
+        synchronized (writeLock) {
+            if (writer != null) {
+                return;
+            }
+            Files.createDirectories(logFile.toAbsolutePath().getParent());
+            writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            proxyMapping = proxy;
+            exchangesRecorded = 0;
+        }
+        server.addStubMapping(proxy);
+        log.info("Streaming recording to {} started, proxying to {}", logFile, targetBaseUrl);
+    }
+    
+    @Override
+    public boolean isRecording() {
+        synchronized (writeLock) {
+            return writer != null;
+        }
+    }
+    
+    @Override
+    public boolean hasPendingExchanges() {
+        return Files.exists(logFile);
+    }
+    
+    public long getExchangesRecorded() {
+        synchronized (writeLock) {
+            return exchangesRecorded;
+        }
+    }
+    
+    @Override
+    public void afterComplete(ServeEvent serveEvent, Parameters parameters) {
+        if (!filters.test(serveEvent)) {
+            return;
+        }
+        synchronized (writeLock) {
+            // Only exchanges served by this recording's proxy stub, not by other proxy stubs
+            if (writer == null || serveEvent.getStubMapping() == null
+                    || !proxyMapping.getId().equals(serveEvent.getStubMapping().getId())
+                    || !recordingFilter.shouldRecord(serveEvent.getRequest())) {
+                return;
+            }
+            try {
+                writer.write(Json.getObjectMapper().writeValueAsString(serveEvent));
+                writer.newLine();
+                // Hand every exchange to the OS so a crashed pod loses at most the one in flight
+                writer.flush();
+                exchangesRecorded++;
+            } catch (IOException e) {
+                log.error("Failed to log recorded exchange for {}", serveEvent.getRequest().getUrl(), e);
+            }
+        }
+    }
+    
+    @Override
+    public RecordedStubBuilder.Result stop(WireMockServer server) throws IOException {
+        StubMapping proxy;
+        synchronized (writeLock) {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+            proxy = proxyMapping;
+            proxyMapping = null;
+        }
+        if (proxy != null) {
+            server.removeStubMapping(proxy);
+        }
+        if (!hasPendingExchanges()) {
+            return new RecordedStubBuilder.Result(0, 0);
+        }
+        
+        RecordedStubBuilder.Result result = stubBuilder.build(this::forEachExchange, server);
+        Files.delete(logFile);
+        log.info("Streaming recording finalized: {} exchanges, {} stub mappings created",
+                result.exchanges(), result.mappingsCreated());
+        return result;
+    }
+    
+    private void forEachExchange(Consumer<ServeEvent> action) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                ServeEvent serveEvent;
+                try {
+                    serveEvent = Json.read(line, ServeEvent.class);
+                } catch (RuntimeException e) {
+                    // Most likely the line being written when the process died
+                    log.warn("Skipping unreadable recorded exchange in {}", logFile);
+                    continue;
+                }
+                action.accept(serveEvent);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.common.Timing;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ServeEventListener;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes Micrometer metrics for every request WireMock serves: request count and latency,
+ * matching and rendering time, and response size per stub and method, plus a count of unmatched
+ * requests. Tag values are bounded - stubs beyond max-stubs share the "other" tag and unknown
+ * methods share "OTHER" - and the meters for each stub and method are looked up once and cached,
+ * so recording an event costs a map lookup and three meter updates.
+ */
+public class StubMetricsListener implements ServeEventListener {
+    
+    private static final String OTHER_STUBS = "other";
+    private static final Set<String> METHODS = Set.of(
+            "GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE", "CONNECT");
+    
+    private final MeterRegistry meterRegistry;
+    private final int maxStubs;
+    private final Map<UUID, String> stubTags = new ConcurrentHashMap<>();
+    private final Map<StubMethod, StubMeters> meters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> unmatched = new ConcurrentHashMap<>();
+    
+    /**
+     * @param maxStubs Distinct stubs tagged individually; later ones are counted under "other"
+     */
+    public StubMetricsListener(MeterRegistry meterRegistry, int maxStubs) {
+        this.meterRegistry = meterRegistry;
+        this.maxStubs = maxStubs;
+    }
+    
+    @Override
+    public String getName() {
+        return "stub-metrics";
+    }
+    
+    @Override
+    public void afterComplete(ServeEvent serveEvent, Parameters parameters) {
+        String method = method(serveEvent.getRequest().getMethod().getName());
+        StubMapping stub = serveEvent.getStubMapping();
+        if (!serveEvent.getWasMatched() || stub == null) {
+            unmatched.computeIfAbsent(method, key -> Counter.builder("wiremock.requests.unmatched")
+                    .description("Requests that matched no stub mapping")
+                    .tag("method", key)
+                    .register(meterRegistry)).increment();
+            return;
+        }
+        
+        StubMeters stubMeters = meters.computeIfAbsent(new StubMethod(stubTag(stub), method), this::register);
+        Timing timing = serveEvent.getTiming();
+        if (timing.getServeTime() != null) {
+            stubMeters.requests().record(timing.getServeTime(), TimeUnit.MILLISECONDS);
+        }
+        if (timing.getProcessTime() != null) {
+            stubMeters.processing().record(timing.getProcessTime(), TimeUnit.MILLISECONDS);
+        }
+        if (serveEvent.getResponse() != null) {
+            byte[] body = serveEvent.getResponse().getBody();
+            stubMeters.responseBytes().record(body != null ? body.length : 0);
+        }
+    }
+    
+    private String stubTag(StubMapping stub) {
+        String tag = stubTags.get(stub.getId());
+        if (tag != null) {
+            return tag;
+        }
+        if (stubTags.size() >= maxStubs) {
+            return OTHER_STUBS;
+        }
+        return stubTags.computeIfAbsent(stub.getId(),
+                id -> stub.getName() != null && !stub.getName().isBlank() ? stub.getName() : id.toString());
+    }
+    
+    private StubMeters register(StubMethod key) {
+        return new StubMeters(
+                Timer.builder("wiremock.stub.requests")
+                        .description("Requests served by a stub, including any configured delay")
+                        .tag("stub", key.stub())
+                        .tag("method", key.method())
+                        .register(meterRegistry),
+                Timer.builder("wiremock.stub.processing")
+                        .description("Time spent matching the request and rendering the stub's response")
+                        .tag("stub", key.stub())
+                        .tag("method", key.method())
+                        .register(meterRegistry),
+                DistributionSummary.builder("wiremock.stub.response.bytes")
+                        .description("Response body sizes served by a stub")
+                        .baseUnit("bytes")
+                        .tag("stub", key.stub())
+                        .tag("method", key.method())
+                        .register(meterRegistry));
+    }
+    
+    private static String method(String method) {
+        return METHODS.contains(method) ? method : "OTHER";
+    }
+    
+    private record StubMethod(String stub, String method) {
+    }
+    
+    private record StubMeters(Timer requests, Timer processing, DistributionSummary responseBytes) {
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.matching.RequestPattern;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-filter for request matching. Stubs are bucketed by HTTP method and placed in a path trie
+ * under the literal URL prefix every request they can match must start with: the whole
+ * {@code url} or {@code urlPath}, the text before the first variable of a {@code urlPathTemplate},
+ * or the literal lead-in of a {@code urlPattern}/{@code urlPathPattern} regex. A lookup walks the
+ * request URL once and returns only stubs whose prefix it starts with, in WireMock's store order.
+ */
+public class StubRequestIndex {
+    
+    /**
+     * WireMock's stub order: priority first, then most recently added
+     */
+    public static final Comparator<StubMapping> STORE_ORDER = (first, second) -> {
+        int byPriority = first.comparePriorityWith(second);
+        return byPriority != 0 ? byPriority : Long.compare(second.getInsertionIndex(), first.getInsertionIndex());
+    };
+    
+    private static final String REGEX_QUANTIFIERS = "?*{";
+    private static final String REGEX_METACHARACTERS = "\\.[]()+^$}";
+    
+    private final Map<RequestMethod, TrieNode> triesByMethod = new ConcurrentHashMap<>();
+    private final Map<UUID, List<StubMapping>> stubsById = new ConcurrentHashMap<>();
+    
+    /**
+     * Candidate stubs for a request in store order, or empty if the request URL cannot be indexed
+     * and every stub has to be considered
+     */
+    public Optional<List<StubMapping>> candidates(Request request) {
+        String url = request.getUrl();
+        // Absolute and protocol-relative URLs are resolved differently by WireMock's path matchers
+        if (url == null || !url.startsWith("/") || url.startsWith("//")) {
+            return Optional.empty();
+        }
+        
+        List<StubMapping> candidates = new ArrayList<>();
+        collect(triesByMethod.get(request.getMethod()), url, candidates);
+        if (!RequestMethod.ANY.equals(request.getMethod())) {
+            collect(triesByMethod.get(RequestMethod.ANY), url, candidates);
+        }
+        candidates.sort(STORE_ORDER);
+        return Optional.of(candidates);
+    }
+    
+    /**
+     * The highest-ordered indexed stub with this id, as the store would return it
+     */
+    public Optional<StubMapping> get(UUID id) {
+        List<StubMapping> stubs = stubsById.get(id);
+        return stubs == null ? Optional.empty() : stubs.stream().min(STORE_ORDER);
+    }
+    
+    /**
+     * The indexed stubs the store removes for this argument: every stub with its id,
+     * or when none has it, every stub with an equal request pattern
+     */
+    public List<StubMapping> removalTargets(StubMapping stub) {
+        List<StubMapping> byId = stub.getId() != null ? stubsById.get(stub.getId()) : null;
+        if (byId != null) {
+            return byId;
+        }
+        return stubsById.values().stream()
+                .flatMap(List::stream)
+                .filter(indexed -> indexed.getRequest().equals(stub.getRequest()))
+                .toList();
+    }
+    
+    /**
+     * The indexed stub the store replaces for this argument, i.e. the one in the same store position
+     */
+    public Optional<StubMapping> replacementTarget(StubMapping existing) {
+        List<StubMapping> byId = existing.getId() != null ? stubsById.get(existing.getId()) : null;
+        if (byId != null) {
+            Optional<StubMapping> target = byId.stream()
+                    .filter(indexed -> STORE_ORDER.compare(indexed, existing) == 0)
+                    .findFirst();
+            if (target.isPresent()) {
+                return target;
+            }
+        }
+        return stubsById.values().stream()
+                .flatMap(List::stream)
+                .filter(indexed -> STORE_ORDER.compare(indexed, existing) == 0)
+                .findFirst();
+    }
+    
+    public void add(StubMapping stub) {
+        if (stub.getId() != null) {
+            stubsById.merge(stub.getId(), List.of(stub), StubRequestIndex::append);
+        }
+        RequestPattern request = stub.getRequest();
+        triesByMethod.computeIfAbsent(methodOf(request), method -> new TrieNode())
+                .add(literalPrefix(request), stub);
+    }
+    
+    public void remove(StubMapping stub) {
+        if (stub.getId() != null) {
+            stubsById.computeIfPresent(stub.getId(), (id, stubs) -> without(stubs, stub));
+        }
+        RequestPattern request = stub.getRequest();
+        TrieNode root = triesByMethod.get(methodOf(request));
+        if (root != null) {
+            root.remove(literalPrefix(request), stub);
+        }
+    }
+    
+    public void clear() {
+        triesByMethod.clear();
+        stubsById.clear();
+    }
+    
+    private static void collect(TrieNode root, String url, List<StubMapping> candidates) {
+        TrieNode node = root;
+        int segmentStart = 0;
+        while (node != null) {
+            int segmentEnd = url.indexOf('/', segmentStart);
+            if (segmentEnd < 0) {
+                segmentEnd = url.length();
+            }
+            node.collect(url, segmentStart, segmentEnd, candidates);
+            if (segmentEnd == url.length()) {
+                return;
+            }
+            node = node.children.get(url.substring(segmentStart, segmentEnd));
+            segmentStart = segmentEnd + 1;
+        }
+    }
+    
+    private static RequestMethod methodOf(RequestPattern request) {
+        return request.getMethod() != null ? request.getMethod() : RequestMethod.ANY;
+    }
+    
+    /**
+     * Text that every URL matched by the pattern starts with; empty when nothing can be assumed
+     */
+    static String literalPrefix(RequestPattern request) {
+        if (request.getUrl() != null) {
+            return request.getUrl();
+        }
+        if (request.getUrlPath() != null) {
+            return request.getUrlPath();
+        }
+        if (request.getUrlPathTemplate() != null) {
+            String template = request.getUrlPathTemplate();
+            int firstVariable = template.indexOf('{');
+            return firstVariable < 0 ? template : template.substring(0, firstVariable);
+        }
+        if (request.getUrlPattern() != null) {
+            return regexLiteralPrefix(request.getUrlPattern());
+        }
+        if (request.getUrlPathPattern() != null) {
+            return regexLiteralPrefix(request.getUrlPathPattern());
+        }
+        return "";
+    }
+    
+    /**
+     * Leading characters a full regex match must begin with. Deliberately conservative:
+     * stops at the first metacharacter and gives up on alternation entirely.
+     */
+    static String regexLiteralPrefix(String regex) {
+        if (regex.indexOf('|') >= 0) {
+            return "";
+        }
+        StringBuilder prefix = new StringBuilder();
+        for (int i = regex.startsWith("^") ? 1 : 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (REGEX_QUANTIFIERS.indexOf(c) >= 0) {
+                // The quantifier may make the preceding character optional
+                if (prefix.length() > 0) {
+                    prefix.setLength(prefix.length() - 1);
+                }
+                break;
+            }
+            if (REGEX_METACHARACTERS.indexOf(c) >= 0) {
+                break;
+            }
+            prefix.append(c);
+        }
+        return prefix.toString();
+    }
+    
+    private static List<StubMapping> append(List<StubMapping> stubs, List<StubMapping> added) {
+        List<StubMapping> updated = new ArrayList<>(stubs);
+        updated.addAll(added);
+        return List.copyOf(updated);
+    }
+    
+    private static List<StubMapping> without(List<StubMapping> stubs, StubMapping removed) {
+        List<StubMapping> updated = new ArrayList<>(stubs);
+        updated.removeIf(stub -> stub == removed);
+        return updated.isEmpty() ? null : List.copyOf(updated);
+    }
+    
+    /**
+     * One path segment of the trie. A prefix is split at its last '/': the segments before it are
+     * trie edges and the trailing partial segment is kept at the node, since it only has to be
+     * a prefix of the request's next segment.
+     */
+    private static class TrieNode {
+        
+        private final Map<String, TrieNode> children = new ConcurrentHashMap<>();
+        private final Map<String, List<StubMapping>> stubsByPartialSegment = new ConcurrentHashMap<>();
+        private volatile int longestPartialSegment;
+        
+        void add(String prefix, StubMapping stub) {
+            TrieNode node = this;
+            int segmentStart = 0;
+            int segmentEnd;
+            while ((segmentEnd = prefix.indexOf('/', segmentStart)) >= 0) {
+                node = node.children.computeIfAbsent(prefix.substring(segmentStart, segmentEnd), segment -> new TrieNode());
+                segmentStart = segmentEnd + 1;
+            }
+            String partialSegment = prefix.substring(segmentStart);
+            node.stubsByPartialSegment.merge(partialSegment, List.of(stub), StubRequestIndex::append);
+            node.longestPartialSegment = Math.max(node.longestPartialSegment, partialSegment.length());
+        }
+        
+        void remove(String prefix, StubMapping stub) {
+            TrieNode node = this;
+            int segmentStart = 0;
+            int segmentEnd;
+            while ((segmentEnd = prefix.indexOf('/', segmentStart)) >= 0) {
+                node = node.children.get(prefix.substring(segmentStart, segmentEnd));
+                if (node == null) {
+                    return;
+                }
+                segmentStart = segmentEnd + 1;
+            }
+            node.stubsByPartialSegment.computeIfPresent(prefix.substring(segmentStart), (partial, stubs) -> without(stubs, stub));
+        }
+        
+        void collect(String url, int segmentStart, int segmentEnd, List<StubMapping> candidates) {
+            if (stubsByPartialSegment.isEmpty()) {
+                return;
+            }
+            int longest = Math.min(longestPartialSegment, segmentEnd - segmentStart);
+            for (int length = 0; length <= longest; length++) {
+                List<StubMapping> stubs = stubsByPartialSegment.get(url.substring(segmentStart, segmentStart + length));
+                if (stubs != null) {
+                    candidates.addAll(stubs);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of stub mappings by their exact request URL. Each URL keeps its stubs in insertion order
+ * in an immutable list that is replaced on every change, so lookups never lock or copy.
+ * Stubs matched by path or pattern rather than an exact URL are not indexed.
+ */
+public class StubUrlIndex {
+    
+    private static final int DEFAULT_PRIORITY = 5;
+    
+    private final Map<String, List<StubMapping>> stubsByUrl = new ConcurrentHashMap<>();
+    
+    /**
+     * Find the stub WireMock would list first for this URL: lowest priority value, newest on ties
+     */
+    public Optional<StubMapping> find(String url) {
+        List<StubMapping> stubs = stubsByUrl.get(url);
+        if (stubs == null) {
+            return Optional.empty();
+        }
+        StubMapping best = null;
+        for (int i = stubs.size() - 1; i >= 0; i--) {
+            StubMapping stub = stubs.get(i);
+            if (best == null || priority(stub) < priority(best)) {
+                best = stub;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+    
+    public void add(StubMapping stub) {
+        String url = stub.getRequest().getUrl();
+        if (url == null) {
+            return;
+        }
+        stubsByUrl.compute(url, (key, stubs) -> {
+            List<StubMapping> updated = stubs == null ? new ArrayList<>(1) : new ArrayList<>(stubs);
+            updated.removeIf(indexed -> indexed.getId().equals(stub.getId()));
+            updated.add(stub);
+            return List.copyOf(updated);
+        });
+    }
+    
+    public void remove(StubMapping stub) {
+        String url = stub.getRequest().getUrl();
+        if (url == null) {
+            return;
+        }
+        stubsByUrl.computeIfPresent(url, (key, stubs) -> {
+            List<StubMapping> updated = new ArrayList<>(stubs);
+            updated.removeIf(indexed -> indexed.getId().equals(stub.getId()));
+            return updated.isEmpty() ? null : List.copyOf(updated);
+        });
+    }
+    
+    public void clear() {
+        stubsByUrl.clear();
+    }
+    
+    private static int priority(StubMapping stub) {
+        return stub.getPriority() != null ? stub.getPriority() : DEFAULT_PRIORITY;
+    }
+}
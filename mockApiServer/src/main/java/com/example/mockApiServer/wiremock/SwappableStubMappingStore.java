@@ -0,0 +1,220 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.common.Pair;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.matching.RequestMatcherExtension;
+import com.github.tomakehurst.wiremock.store.InMemoryStubMappingStore;
+import com.github.tomakehurst.wiremock.store.StubMappingStore;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import com.github.tomakehurst.wiremock.stubbing.SubEvent;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Stub mapping store whose entire contents can be replaced in one atomic step.
+ * Reads go to whichever set is live when they start, so in-flight requests
+ * finish against the old set while new requests only ever see the complete new set.
+ * Large inline response bodies are offloaded to the body store as mappings come in,
+ * and every set carries its URL and request indexes, which are swapped and edited together with it.
+ * Named snapshot sets can be loaded next to the live set; a request carrying the set header is
+ * matched against that set only, and identical inline bodies are shared across all sets.
+ */
+public class SwappableStubMappingStore implements StubMappingStore {
+    
+    private final AtomicReference<StubSet> current = new AtomicReference<>(new StubSet());
+    private final Map<String, StubSet> namedSets = new ConcurrentHashMap<>();
+    private final MappedBodyStore bodyStore;
+    private final boolean indexedMatching;
+    private final String setHeader;
+    
+    /**
+     * @param indexedMatching Whether to pre-filter stubs by method and URL prefix before full matching
+     * @param setHeader Request header naming the snapshot set to match against
+     */
+    public SwappableStubMappingStore(MappedBodyStore bodyStore, boolean indexedMatching, String setHeader) {
+        this.bodyStore = bodyStore;
+        this.indexedMatching = indexedMatching;
+        this.setHeader = setHeader;
+    }
+    
+    /**
+     * Build a new store from the given mappings off to the side and make it live
+     * @param mappings The complete replacement mapping set
+     * @return The mappings that were live before the swap
+     */
+    public synchronized List<StubMapping> swap(Collection<StubMapping> mappings) {
+        StubSet next = new StubSet();
+        mappings.forEach(stub -> next.add(prepare(stub)));
+        return current.getAndSet(next).store().getAll().toList();
+    }
+    
+    /**
+     * Build a named snapshot set off to the side and make it live, replacing any set of that name
+     * @return The mappings of the replaced set, empty if there was none
+     */
+    public synchronized List<StubMapping> putSet(String name, Collection<StubMapping> mappings) {
+        StubSet next = new StubSet();
+        mappings.forEach(stub -> next.add(prepare(stub)));
+        StubSet previous = namedSets.put(name, next);
+        return previous != null ? previous.store().getAll().toList() : List.of();
+    }
+    
+    /**
+     * Drop a named snapshot set
+     * @return The mappings of the removed set, empty if there was none
+     */
+    public synchronized List<StubMapping> removeSet(String name) {
+        StubSet removed = namedSets.remove(name);
+        return removed != null ? removed.store().getAll().toList() : List.of();
+    }
+    
+    public boolean hasSet(String name) {
+        return namedSets.containsKey(name);
+    }
+    
+    /**
+     * Loaded snapshot sets by name, with their number of stubs
+     */
+    public Map<String, Long> getSetSizes() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        namedSets.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> sizes.put(entry.getKey(), entry.getValue().store().getAll().count()));
+        return sizes;
+    }
+    
+    /**
+     * Every stub of every loaded snapshot set
+     */
+    public Stream<StubMapping> getSetMappings() {
+        return namedSets.values().stream().flatMap(set -> set.store().getAll());
+    }
+    
+    public String getSetHeader() {
+        return setHeader;
+    }
+    
+    /**
+     * Find the stub listed first for an exact request URL without scanning the stub set
+     */
+    public Optional<StubMapping> findByUrl(String url) {
+        return current.get().urlIndex().find(url);
+    }
+    
+    @Override
+    public Stream<StubMapping> getAll() {
+        return current.get().store().getAll();
+    }
+    
+    @Override
+    public Optional<StubMapping> get(UUID id) {
+        Optional<StubMapping> live = current.get().requestIndex().get(id);
+        if (live.isPresent() || namedSets.isEmpty()) {
+            return live;
+        }
+        return namedSets.values().stream()
+                .flatMap(set -> set.requestIndex().get(id).stream())
+                .findFirst();
+    }
+    
+    @Override
+    public Stream<StubMapping> findAllMatchingRequest(Request request,
+                                                      Map<String, RequestMatcherExtension> customMatchers,
+                                                      Consumer<SubEvent> subEventConsumer) {
+        StubSet stubs = current.get();
+        String setName = namedSets.isEmpty() ? null : request.getHeader(setHeader);
+        if (setName != null) {
+            stubs = namedSets.get(setName);
+            if (stubs == null) {
+                return Stream.empty();
+            }
+        }
+        Optional<List<StubMapping>> candidates = indexedMatching
+                ? stubs.requestIndex().candidates(request)
+                : Optional.empty();
+        if (candidates.isEmpty()) {
+            return stubs.store().findAllMatchingRequest(request, customMatchers, subEventConsumer);
+        }
+        // Same evaluation as the store's own scan, restricted to stubs that can possibly match
+        return candidates.get().stream()
+                .map(stub -> Pair.pair(stub, stub.getRequest().match(request, customMatchers)))
+                .peek(matched -> matched.b.getSubEvents().forEach(subEventConsumer))
+                .filter(matched -> matched.b.isExactMatch())
+                .map(matched -> matched.a);
+    }
+    
+    // Writers share the swap lock so an edit cannot land in a set that is being replaced
+    
+    @Override
+    public synchronized void add(StubMapping stub) {
+        current.get().add(prepare(stub));
+    }
+    
+    @Override
+    public synchronized void replace(StubMapping existing, StubMapping updated) {
+        current.get().replace(existing, prepare(updated));
+    }
+    
+    @Override
+    public synchronized void remove(StubMapping stubMapping) {
+        current.get().remove(stubMapping);
+    }
+    
+    @Override
+    public synchronized void clear() {
+        current.get().clear();
+    }
+    
+    private StubMapping prepare(StubMapping stub) {
+        return bodyStore.share(bodyStore.offload(stub));
+    }
+    
+    private record StubSet(StubMappingStore store, StubUrlIndex urlIndex, StubRequestIndex requestIndex) {
+        
+        StubSet() {
+            this(new InMemoryStubMappingStore(), new StubUrlIndex(), new StubRequestIndex());
+        }
+        
+        void add(StubMapping stub) {
+            store.add(stub);
+            urlIndex.add(stub);
+            requestIndex.add(stub);
+        }
+        
+        void replace(StubMapping existing, StubMapping updated) {
+            // The store only replaces the stub occupying the existing stub's position
+            Optional<StubMapping> replaced = requestIndex.replacementTarget(existing);
+            store.replace(existing, updated);
+            replaced.ifPresent(stub -> {
+                urlIndex.remove(stub);
+                requestIndex.remove(stub);
+                urlIndex.add(updated);
+                requestIndex.add(updated);
+            });
+        }
+        
+        void remove(StubMapping stub) {
+            List<StubMapping> removed = requestIndex.removalTargets(stub);
+            store.remove(stub);
+            removed.forEach(indexed -> {
+                urlIndex.remove(indexed);
+                requestIndex.remove(indexed);
+            });
+        }
+        
+        void clear() {
+            store.clear();
+            urlIndex.clear();
+            requestIndex.clear();
+        }
+    }
+}
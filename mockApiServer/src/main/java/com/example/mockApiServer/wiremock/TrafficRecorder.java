@@ -0,0 +1,31 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+
+import java.io.IOException;
+
+/**
+ * Records proxied traffic and turns it into stub mappings when stopped
+ */
+public interface TrafficRecorder {
+    
+    /**
+     * Start proxying all requests to the target and capturing the exchanges
+     */
+    void start(WireMockServer server, String targetBaseUrl) throws IOException;
+    
+    /**
+     * Stop capturing and register a persistent stub mapping for the captured exchanges
+     */
+    RecordedStubBuilder.Result stop(WireMockServer server) throws IOException;
+    
+    boolean isRecording();
+    
+    /**
+     * Whether captured exchanges are waiting to be turned into mappings although no recording
+     * is running, e.g. after a crash during recording
+     */
+    default boolean hasPendingExchanges() {
+        return false;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.mockApiServer.service;
+
+import com.example.mockApiServer.wiremock.BoundedRequestJournalStore;
+import com.example.mockApiServer.wiremock.MappedBodyStore;
+import com.example.mockApiServer.wiremock.MockServerStores;
+import com.example.mockApiServer.wiremock.PersistOnlyMappingsSource;
+import com.example.mockApiServer.wiremock.SwappableStubMappingStore;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.common.Json;
+import com.github.tomakehurst.wiremock.common.SingleRootFileSource;
+import com.github.tomakehurst.wiremock.common.filemaker.FilenameMaker;
+import com.github.tomakehurst.wiremock.store.files.FileSourceBlobStore;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Swapping the live stub set must carry scenario state over for every scenario the new set still uses
+ */
+class MappingImportServiceTest {
+    
+    private static final String LOGIN = "1";
+    private static final String LOGIN_CHECK = "2";
+    private static final String LOGIN_REPLACEMENT = "3";
+    private static final String LOGIN_CHECK_REPLACEMENT = "4";
+    private static final String PLAIN = "5";
+    private static final String CART = "6";
+    
+    @TempDir
+    Path rootDir;
+    
+    private SwappableStubMappingStore stubMappingStore;
+    private WireMockServer server;
+    private MappingImportService importService;
+    
+    @BeforeEach
+    void setUp() {
+        // Wired like WireMockConfig, without starting the server: scenarios are all the swap touches
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FileSource root = new SingleRootFileSource(rootDir.toString());
+        MappedBodyStore bodyStore = new MappedBodyStore(new FileSourceBlobStore(root.child("__files")),
+                rootDir.resolve("__files"), Long.MAX_VALUE);
+        stubMappingStore = new SwappableStubMappingStore(bodyStore, false, "X-Snapshot-Set");
+        MockServerStores stores = new MockServerStores(root, stubMappingStore, bodyStore,
+                new BoundedRequestJournalStore(BoundedRequestJournalStore.Policy.UNBOUNDED, 0, 0, -1, meterRegistry));
+        PersistOnlyMappingsSource mappingsSource = new PersistOnlyMappingsSource(root.child("mappings"), new FilenameMaker());
+        server = new WireMockServer(options().dynamicPort()
+                .usingFilesUnderDirectory(rootDir.toString())
+                .mappingSource(mappingsSource)
+                .withStores(stores));
+        importService = new MappingImportService(server, stubMappingStore, mappingsSource, stores, meterRegistry, 1);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+    }
+    
+    @Test
+    void swapKeepsTheStateOfScenariosTheNewSetStillUses() {
+        importService.swapMappings(List.of(stub(LOGIN, "login", null, "logged-in"), stub(LOGIN_CHECK, "login", "logged-in", null)));
+        server.setScenarioState("login", "logged-in");
+        
+        importService.swapMappings(List.of(stub(LOGIN, "login", null, "logged-in"), stub(LOGIN_CHECK, "login", "logged-in", null),
+                stub(PLAIN, null, null, null)));
+        
+        assertEquals(Map.of("login", "logged-in"), scenarioStates());
+        assertEquals(3, stubMappingStore.getAll().count());
+    }
+    
+    @Test
+    void swapKeepsTheStateOfAScenarioWhoseStubsWereAllReplaced() {
+        importService.swapMappings(List.of(stub(LOGIN, "login", null, "logged-in"), stub(LOGIN_CHECK, "login", "logged-in", null)));
+        server.setScenarioState("login", "logged-in");
+        
+        // The new stubs join the scenario before the old ones leave it, so it never empties out
+        importService.swapMappings(List.of(stub(LOGIN_REPLACEMENT, "login", null, "logged-in"),
+                stub(LOGIN_CHECK_REPLACEMENT, "login", "logged-in", null)));
+        
+        assertEquals(Map.of("login", "logged-in"), scenarioStates());
+    }
+    
+    @Test
+    void swapForgetsScenariosNoStubUsesAnyMore() {
+        importService.swapMappings(List.of(stub(LOGIN, "login", null, "logged-in"), stub(CART, "cart", null, "filled")));
+        server.setScenarioState("login", "logged-in");
+        
+        importService.swapMappings(List.of(stub(CART, "cart", null, "filled"), stub(PLAIN, null, null, null)));
+        
+        assertEquals(Map.of("cart", Scenario.STARTED), scenarioStates());
+    }
+    
+    @Test
+    void swapRegistersTheScenariosOfTheNewSet() {
+        importService.swapMappings(List.of(stub(PLAIN, null, null, null)));
+        
+        importService.swapMappings(List.of(stub(CART, "cart", null, "filled")));
+        
+        assertEquals(Map.of("cart", Scenario.STARTED), scenarioStates());
+        assertEquals(List.of(Scenario.STARTED, "filled"),
+                server.getAllScenarios().getScenarios().get(0).getPossibleStates().stream().sorted().toList());
+    }
+    
+    @Test
+    void resetReloadsTheMappingsDirectory() throws IOException {
+        Path mappingsDir = Files.createDirectories(rootDir.resolve("mappings"));
+        Files.writeString(mappingsDir.resolve("cart.json"), Json.write(stub(CART, "cart", null, "filled")));
+        importService.swapMappings(List.of(stub(LOGIN, "login", null, "logged-in")));
+        
+        // What POST /__admin/mappings/reset does
+        server.resetToDefaultMappings();
+        
+        assertEquals(List.of("/stub/" + CART), stubMappingStore.getAll().map(stub -> stub.getRequest().getUrl()).toList());
+        assertEquals(Map.of("cart", Scenario.STARTED), scenarioStates());
+        assertEquals(1, importService.resetLive().mappings());
+    }
+    
+    private Map<String, String> scenarioStates() {
+        return server.getAllScenarios().getScenarios().stream()
+                .collect(Collectors.toMap(Scenario::getName, Scenario::getState));
+    }
+    
+    private static StubMapping stub(String number, String scenario, String requiredState, String newState) {
+        StringBuilder json = new StringBuilder()
+                .append("{\"id\": \"00000000-0000-0000-0000-00000000000").append(number).append("\", ")
+                .append("\"request\": {\"method\": \"GET\", \"url\": \"/stub/").append(number).append("\"}, ")
+                .append("\"response\": {\"status\": 200}");
+        if (scenario != null) {
+            json.append(", \"scenarioName\": \"").append(scenario).append("\"")
+                    .append(", \"requiredScenarioState\": \"").append(requiredState != null ? requiredState : Scenario.STARTED).append("\"");
+        }
+        if (newState != null) {
+            json.append(", \"newScenarioState\": \"").append(newState).append("\"");
+        }
+        return StubMapping.buildFrom(json.append("}").toString());
+    }
+}
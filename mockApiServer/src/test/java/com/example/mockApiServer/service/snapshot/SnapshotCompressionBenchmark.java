@@ -0,0 +1,103 @@
+package com.example.mockApiServer.service.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares archive size against create and restore time for the corpus under ./wiremock.
+ * Run from the directory holding the recorded corpus with:
+ * mvn test -Dtest=SnapshotCompressionBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SnapshotCompressionBenchmark {
+    
+    private static final int RUNS = 3;
+    
+    @Test
+    void compareCompressionSettings() throws IOException {
+        List<CompressionSettings> candidates = List.of(
+                new CompressionSettings(CompressionSettings.Codec.STORED, -1, 0, 0),
+                new CompressionSettings(CompressionSettings.Codec.DEFLATE, 1, 512, 1),
+                new CompressionSettings(CompressionSettings.Codec.DEFLATE, 1, 512, 0),
+                new CompressionSettings(CompressionSettings.Codec.DEFLATE, 6, 512, 1),
+                new CompressionSettings(CompressionSettings.Codec.DEFLATE, 6, 512, 0),
+                new CompressionSettings(CompressionSettings.Codec.DEFLATE, 9, 512, 0),
+                new CompressionSettings(CompressionSettings.Codec.DEFLATE, 6, 0, 0));
+        
+        SnapshotArchiveService service = new SnapshotArchiveService(
+                null, new ObjectMapper(), CompressionSettings.Codec.DEFLATE, -1, 512, 0);
+        int files = WireMockDirectory.listSnapshotFiles().size();
+        long corpusBytes = 0;
+        for (Path file : WireMockDirectory.listSnapshotFiles()) {
+            corpusBytes += Files.size(file);
+        }
+        
+        System.out.printf("Corpus: %d files, %d bytes%n", files, corpusBytes);
+        System.out.printf("%-8s %5s %9s %7s %12s %8s %11s %11s%n",
+                "codec", "level", "threshold", "threads", "size", "ratio", "create ms", "restore ms");
+        
+        Path archive = Files.createTempFile("snapshot-benchmark-", ".zip");
+        try {
+            for (CompressionSettings settings : candidates) {
+                // One untimed pass to warm up the JIT and the file cache
+                create(service, settings, archive);
+                
+                long createNanos = 0;
+                long restoreNanos = 0;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    create(service, settings, archive);
+                    createNanos += System.nanoTime() - start;
+                    
+                    start = System.nanoTime();
+                    int entries = restore(archive);
+                    restoreNanos += System.nanoTime() - start;
+                    assertEquals(files + 1, entries);
+                }
+                
+                long size = Files.size(archive);
+                System.out.printf("%-8s %5d %9d %7d %12d %8.3f %11.1f %11.1f%n",
+                        settings.codec(), settings.level(), settings.storeThresholdBytes(), settings.threads(),
+                        size, corpusBytes == 0 ? 1.0 : (double) size / corpusBytes,
+                        createNanos / RUNS / 1e6, restoreNanos / RUNS / 1e6);
+            }
+        } finally {
+            Files.deleteIfExists(archive);
+        }
+    }
+    
+    private static void create(SnapshotArchiveService service, CompressionSettings settings, Path archive)
+            throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(archive))) {
+            service.writeArchive(out, settings);
+        }
+    }
+    
+    /**
+     * Inflate every entry, as a restore would before writing it to disk
+     */
+    private static int restore(Path archive) throws IOException {
+        int entries = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(archive));
+             ZipInputStream zis = new ZipInputStream(in)) {
+            while (zis.getNextEntry() != null) {
+                zis.transferTo(OutputStream.nullOutputStream());
+                entries++;
+            }
+        }
+        return entries;
+    }
+}
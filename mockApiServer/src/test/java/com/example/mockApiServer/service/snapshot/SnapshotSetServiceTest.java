@@ -0,0 +1,183 @@
+package com.example.mockApiServer.service.snapshot;
+
+import com.example.mockApiServer.service.MappingImportService;
+import com.example.mockApiServer.service.storage.SnapshotWriter;
+import com.example.mockApiServer.service.storage.StorageService;
+import com.example.mockApiServer.wiremock.BoundedRequestJournalStore;
+import com.example.mockApiServer.wiremock.MappedBodyStore;
+import com.example.mockApiServer.wiremock.MockServerStores;
+import com.example.mockApiServer.wiremock.PersistOnlyMappingsSource;
+import com.example.mockApiServer.wiremock.SwappableStubMappingStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.common.SingleRootFileSource;
+import com.github.tomakehurst.wiremock.common.filemaker.FilenameMaker;
+import com.github.tomakehurst.wiremock.store.files.FileSourceBlobStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A snapshot set that fails to load must not leave behind the bodies it stored before failing
+ */
+class SnapshotSetServiceTest {
+    
+    private static final String SHARED_BODY = "{\"users\": []}";
+    
+    @TempDir
+    Path rootDir;
+    
+    private FakeStorage storage;
+    private MappingImportService importService;
+    private SnapshotSetService setService;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        // Wired like WireMockConfig, without starting the server: sets are only held in the stub store
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FileSource root = new SingleRootFileSource(rootDir.toString());
+        MappedBodyStore bodyStore = new MappedBodyStore(new FileSourceBlobStore(root.child("__files")),
+                rootDir.resolve("__files"), Long.MAX_VALUE);
+        SwappableStubMappingStore stubMappingStore = new SwappableStubMappingStore(bodyStore, false, "X-Snapshot-Set");
+        MockServerStores stores = new MockServerStores(root, stubMappingStore, bodyStore,
+                new BoundedRequestJournalStore(BoundedRequestJournalStore.Policy.UNBOUNDED, 0, 0, -1, meterRegistry));
+        PersistOnlyMappingsSource mappingsSource = new PersistOnlyMappingsSource(root.child("mappings"), new FilenameMaker());
+        WireMockServer server = new WireMockServer(options().dynamicPort()
+                .usingFilesUnderDirectory(rootDir.toString())
+                .mappingSource(mappingsSource)
+                .withStores(stores));
+        storage = new FakeStorage();
+        importService = new MappingImportService(server, stubMappingStore, mappingsSource, stores, meterRegistry, 1);
+        setService = new SnapshotSetService(storage, new ContentAddressedSnapshotService(storage, new ObjectMapper()),
+                importService, stubMappingStore, bodyStore, meterRegistry);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+    }
+    
+    @Test
+    void failedLoadRemovesTheBodiesNoLoadedSetUses() throws IOException {
+        storage.put("v1", archive(Map.of("__files/users.json", SHARED_BODY.getBytes(StandardCharsets.UTF_8))));
+        setService.load("v1", "v1");
+        List<String> v1Bodies = storedBodies();
+        
+        Map<String, byte[]> v2 = new LinkedHashMap<>();
+        v2.put("__files/users.json", SHARED_BODY.getBytes(StandardCharsets.UTF_8));
+        v2.put("__files/orders.json", "{\"orders\": []}".getBytes(StandardCharsets.UTF_8));
+        v2.put("__files/report.bin", incompressible(64 * 1024));
+        byte[] archive = archive(v2);
+        // The download breaks off inside the last body, after the first two were stored
+        storage.put("v2", archive);
+        storage.failAfter = archive.length - 1024;
+        
+        assertThrows(IOException.class, () -> setService.load("v2", "v2"));
+        
+        assertEquals(1, v1Bodies.size());
+        assertEquals(v1Bodies, storedBodies());
+        assertEquals(Map.of("v1", 0L), setService.list());
+    }
+    
+    private List<String> storedBodies() throws IOException {
+        Path directory = rootDir.resolve("__files").resolve(MappedBodyStore.SHARED_DIRECTORY);
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+    
+    private static byte[] archive(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(out)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zos.putNextEntry(new ZipEntry(entry.getKey()));
+                zos.write(entry.getValue());
+                zos.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+    
+    private static byte[] incompressible(int size) {
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        return content;
+    }
+    
+    private static class FakeStorage implements StorageService {
+        
+        private final Map<String, byte[]> snapshots = new HashMap<>();
+        private int failAfter = -1;
+        
+        void put(String name, byte[] content) {
+            snapshots.put(name, content);
+        }
+        
+        @Override
+        public InputStream openSnapshot(String name) throws IOException {
+            byte[] content = snapshots.get(name);
+            if (content == null) {
+                throw new FileNotFoundException(name);
+            }
+            if (failAfter < 0) {
+                return new ByteArrayInputStream(content);
+            }
+            InputStream failing = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("Connection reset");
+                }
+            };
+            return new SequenceInputStream(new ByteArrayInputStream(content, 0, failAfter), failing);
+        }
+        
+        @Override
+        public void saveSnapshot(String name, SnapshotWriter writer) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writer.writeTo(out);
+            snapshots.put(name, out.toByteArray());
+        }
+        
+        @Override
+        public List<String> listSnapshots() {
+            return new ArrayList<>(snapshots.keySet());
+        }
+        
+        @Override
+        public boolean deleteSnapshot(String name) {
+            return snapshots.remove(name) != null;
+        }
+        
+        @Override
+        public boolean snapshotExists(String name) {
+            return snapshots.containsKey(name);
+        }
+    }
+}
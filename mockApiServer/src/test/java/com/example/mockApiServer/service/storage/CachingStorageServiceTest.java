@@ -0,0 +1,193 @@
+package com.example.mockApiServer.service.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachingStorageServiceTest {
+    
+    private static final byte[] CONTENT = "snapshot archive bytes".getBytes(StandardCharsets.UTF_8);
+    
+    @TempDir
+    Path cacheDir;
+    
+    private FakeRemote remote;
+    private CachingStorageService cache;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        remote = new FakeRemote();
+        cache = new CachingStorageService(remote, cacheDir, 1024, new SimpleMeterRegistry());
+    }
+    
+    @Test
+    void missStreamsFromTheBackendAndCachesOnceFullyRead() throws IOException {
+        remote.put("v1", CONTENT, "r1");
+        
+        try (InputStream in = cache.openSnapshot("v1")) {
+            assertEquals(CONTENT[0], in.read());
+            // Nothing is cached while the download is still in progress
+            assertFalse(Files.exists(cacheDir.resolve("snapshots/v1.zip")));
+            assertArrayEquals(Arrays.copyOfRange(CONTENT, 1, CONTENT.length), in.readAllBytes());
+        }
+        assertEquals(List.of("v1.zip", "v1.zip.revision"), cachedSnapshots());
+        
+        try (InputStream in = cache.openSnapshot("v1")) {
+            assertArrayEquals(CONTENT, in.readAllBytes());
+        }
+        assertEquals(1, remote.downloads);
+    }
+    
+    @Test
+    void closingEarlyStillCachesTheWholeSnapshot() throws IOException {
+        remote.put("v1", CONTENT, "r1");
+        
+        try (InputStream in = cache.openSnapshot("v1")) {
+            in.read(new byte[4]);
+        }
+        
+        try (InputStream in = cache.openSnapshot("v1")) {
+            assertArrayEquals(CONTENT, in.readAllBytes());
+        }
+        assertEquals(1, remote.downloads);
+    }
+    
+    @Test
+    void failedDownloadLeavesNothingCached() throws IOException {
+        remote.put("v1", CONTENT, "r1");
+        remote.failAfter = 4;
+        
+        try (InputStream in = cache.openSnapshot("v1")) {
+            assertThrows(IOException.class, in::readAllBytes);
+        }
+        assertEquals(List.of(), cachedSnapshots());
+    }
+    
+    @Test
+    void revisionIsTakenFromTheDownload() throws IOException {
+        remote.put("v1", CONTENT, "r1");
+        // Replaced between the revision check and the download
+        remote.headRevision = "r0";
+        
+        StorageService.RevisionedStream download = cache.openSnapshotWithRevision("v1");
+        try (InputStream in = download.content()) {
+            in.readAllBytes();
+        }
+        assertEquals("r1", download.revision());
+        assertEquals("r1", Files.readString(cacheDir.resolve("snapshots/v1.zip.revision")));
+        
+        remote.headRevision = null;
+        try (InputStream in = cache.openSnapshot("v1")) {
+            assertArrayEquals(CONTENT, in.readAllBytes());
+        }
+        assertEquals(1, remote.downloads);
+    }
+    
+    @Test
+    void snapshotLargerThanTheCacheIsServedButNotKept() throws IOException {
+        byte[] large = new byte[2048];
+        remote.put("v1", large, "r1");
+        
+        try (InputStream in = cache.openSnapshot("v1")) {
+            assertArrayEquals(large, in.readAllBytes());
+        }
+        assertEquals(List.of(), cachedSnapshots());
+        assertEquals(0, cache.getCachedBytes());
+    }
+    
+    private List<String> cachedSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(cacheDir.resolve("snapshots"))) {
+            return files.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+    
+    /**
+     * Backend that reports a revision with each download and can fail part-way through one
+     */
+    private static class FakeRemote implements StorageService {
+        
+        private final Map<String, byte[]> snapshots = new HashMap<>();
+        private final Map<String, String> revisions = new HashMap<>();
+        private String headRevision;
+        private int failAfter = -1;
+        private int downloads;
+        
+        void put(String name, byte[] content, String revision) {
+            snapshots.put(name, content);
+            revisions.put(name, revision);
+        }
+        
+        @Override
+        public String snapshotRevision(String name) {
+            return headRevision != null ? headRevision : revisions.get(name);
+        }
+        
+        @Override
+        public RevisionedStream openSnapshotWithRevision(String name) throws IOException {
+            return new RevisionedStream(openSnapshot(name), revisions.get(name));
+        }
+        
+        @Override
+        public InputStream openSnapshot(String name) throws IOException {
+            byte[] content = snapshots.get(name);
+            if (content == null) {
+                throw new FileNotFoundException(name);
+            }
+            downloads++;
+            if (failAfter < 0) {
+                return new ByteArrayInputStream(content);
+            }
+            InputStream failing = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("Connection reset");
+                }
+            };
+            return new SequenceInputStream(new ByteArrayInputStream(content, 0, failAfter), failing);
+        }
+        
+        @Override
+        public void saveSnapshot(String name, SnapshotWriter writer) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writer.writeTo(out);
+            snapshots.put(name, out.toByteArray());
+        }
+        
+        @Override
+        public List<String> listSnapshots() {
+            return new ArrayList<>(snapshots.keySet());
+        }
+        
+        @Override
+        public boolean deleteSnapshot(String name) {
+            return snapshots.remove(name) != null;
+        }
+        
+        @Override
+        public boolean snapshotExists(String name) {
+            return snapshots.containsKey(name);
+        }
+    }
+}
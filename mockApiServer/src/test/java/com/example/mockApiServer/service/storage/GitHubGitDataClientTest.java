@@ -0,0 +1,179 @@
+package com.example.mockApiServer.service.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.notFound;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.patch;
+import static com.github.tomakehurst.wiremock.client.WireMock.patchRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.status;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the Git Data client against a WireMock stand-in for the GitHub API
+ */
+class GitHubGitDataClientTest {
+    
+    private static final String REPO = "/repos/owner/snapshots";
+    private static final byte[] CONTENT = "snapshot archive bytes".getBytes(StandardCharsets.UTF_8);
+    
+    private WireMockServer github;
+    private GitHubGitDataClient client;
+    
+    @BeforeEach
+    void setUp() {
+        github = new WireMockServer(options().dynamicPort());
+        github.start();
+        client = new GitHubGitDataClient(github.baseUrl() + "/", "owner/snapshots", "token", new ObjectMapper());
+    }
+    
+    @AfterEach
+    void tearDown() {
+        github.stop();
+    }
+    
+    @Test
+    void createBlobStreamsTheContentBase64Encoded() throws IOException {
+        github.stubFor(post(urlEqualTo(REPO + "/git/blobs")).willReturn(okJson("{\"sha\": \"blob1\"}")));
+        
+        assertEquals("blob1", client.createBlob(out -> out.write(CONTENT)));
+        github.verify(postRequestedFor(urlEqualTo(REPO + "/git/blobs"))
+                .withHeader("Transfer-Encoding", equalTo("chunked"))
+                .withHeader("Authorization", equalTo("Bearer token"))
+                .withRequestBody(equalToJson("{\"encoding\": \"base64\", \"content\": \""
+                        + Base64.getEncoder().encodeToString(CONTENT) + "\"}")));
+    }
+    
+    @Test
+    void commitBuildsOnTheBranchHeadAndMovesTheRef() throws IOException {
+        stubHead("parent1");
+        stubCommitCreation();
+        github.stubFor(patch(urlEqualTo(REPO + "/git/refs/heads/main")).willReturn(okJson("{}")));
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("snapshots/v1.zip", "blob1");
+        files.put("snapshots/v0.zip", null);
+        
+        assertEquals("commit1", client.commit("main", files, "Save v1"));
+        
+        github.verify(postRequestedFor(urlEqualTo(REPO + "/git/trees")).withRequestBody(equalToJson("""
+                {"base_tree": "tree0", "tree": [
+                  {"path": "snapshots/v1.zip", "mode": "100644", "type": "blob", "sha": "blob1"},
+                  {"path": "snapshots/v0.zip", "mode": "100644", "type": "blob", "sha": null}]}""")));
+        github.verify(postRequestedFor(urlEqualTo(REPO + "/git/commits")).withRequestBody(equalToJson("""
+                {"message": "Save v1", "tree": "tree1", "parents": ["parent1"]}""")));
+        github.verify(patchRequestedFor(urlEqualTo(REPO + "/git/refs/heads/main")).withRequestBody(equalToJson("""
+                {"sha": "commit1", "force": false}""")));
+    }
+    
+    @Test
+    void commitRebuildsOnTheNewHeadWhenTheRefUpdateIsRejected() throws IOException {
+        github.stubFor(get(urlEqualTo(REPO + "/git/ref/heads/main")).inScenario("head")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(okJson("{\"object\": {\"sha\": \"parent1\"}}"))
+                .willSetStateTo("moved"));
+        github.stubFor(get(urlEqualTo(REPO + "/git/ref/heads/main")).inScenario("head")
+                .whenScenarioStateIs("moved")
+                .willReturn(okJson("{\"object\": {\"sha\": \"parent2\"}}")));
+        stubCommitCreation();
+        github.stubFor(get(urlEqualTo(REPO + "/git/commits/parent2")).willReturn(okJson("{\"tree\": {\"sha\": \"tree0\"}}")));
+        github.stubFor(patch(urlEqualTo(REPO + "/git/refs/heads/main"))
+                .inScenario("ref").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(status(422).withBody("{\"message\": \"Update is not a fast forward\"}"))
+                .willSetStateTo("updated"));
+        github.stubFor(patch(urlEqualTo(REPO + "/git/refs/heads/main"))
+                .inScenario("ref").whenScenarioStateIs("updated")
+                .willReturn(okJson("{}")));
+        
+        client.commit("main", Map.of("snapshots/v1.zip", "blob1"), "Save v1");
+        
+        github.verify(2, getRequestedFor(urlEqualTo(REPO + "/git/ref/heads/main")));
+        github.verify(postRequestedFor(urlEqualTo(REPO + "/git/commits"))
+                .withRequestBody(matchingJsonPath("$.parents[0]", equalTo("parent2"))));
+        github.verify(2, patchRequestedFor(urlEqualTo(REPO + "/git/refs/heads/main")));
+    }
+    
+    @Test
+    void commitCreatesAMissingBranch() throws IOException {
+        github.stubFor(get(urlEqualTo(REPO + "/git/ref/heads/main")).willReturn(notFound()));
+        stubCommitCreation();
+        github.stubFor(post(urlEqualTo(REPO + "/git/refs")).willReturn(status(201).withBody("{}")));
+        
+        assertEquals("commit1", client.commit("main", Map.of("snapshots/v1.zip", "blob1"), "Save v1"));
+        
+        github.verify(postRequestedFor(urlEqualTo(REPO + "/git/trees")).withRequestBody(matchingJsonPath("$.base_tree", absent())));
+        github.verify(postRequestedFor(urlEqualTo(REPO + "/git/commits"))
+                .withRequestBody(equalToJson("{\"message\": \"Save v1\", \"tree\": \"tree1\", \"parents\": []}")));
+        github.verify(postRequestedFor(urlEqualTo(REPO + "/git/refs"))
+                .withRequestBody(equalToJson("{\"ref\": \"refs/heads/main\", \"sha\": \"commit1\"}")));
+    }
+    
+    @Test
+    void listDirectoryRevalidatesTheTreeWithItsETag() throws IOException {
+        github.stubFor(get(urlEqualTo(REPO + "/git/trees/main:snapshots"))
+                .withHeader("If-None-Match", absent())
+                .willReturn(okJson("{\"tree\": [{\"path\": \"v1.zip\", \"type\": \"blob\", \"sha\": \"blob1\"}], \"truncated\": false}")
+                        .withHeader("ETag", "\"listing1\"")));
+        github.stubFor(get(urlEqualTo(REPO + "/git/trees/main:snapshots"))
+                .withHeader("If-None-Match", equalTo("\"listing1\""))
+                .willReturn(aResponse().withStatus(304)));
+        
+        GitHubGitDataClient.Listing listing = client.listDirectory("snapshots", "main", null);
+        assertEquals("\"listing1\"", listing.etag());
+        assertEquals("v1.zip", listing.entries().get(0).path("path").asText());
+        assertFalse(listing.truncated());
+        
+        GitHubGitDataClient.Listing revalidated = client.listDirectory("snapshots", "main", listing.etag());
+        assertTrue(revalidated.notModified());
+        assertNull(revalidated.entries());
+    }
+    
+    @Test
+    void listDirectoryReportsATruncatedTree() throws IOException {
+        github.stubFor(get(urlEqualTo(REPO + "/git/trees/main:snapshots"))
+                .willReturn(okJson("{\"tree\": [], \"truncated\": true}")));
+        
+        assertTrue(client.listDirectory("snapshots", "main", null).truncated());
+    }
+    
+    @Test
+    void listDirectoryTreatsAMissingDirectoryAsEmpty() throws IOException {
+        github.stubFor(get(urlEqualTo(REPO + "/git/trees/main:snapshots")).willReturn(notFound()));
+        
+        assertTrue(client.listDirectory("snapshots", "main", null).entries().isEmpty());
+    }
+    
+    private void stubHead(String sha) {
+        github.stubFor(get(urlEqualTo(REPO + "/git/ref/heads/main")).willReturn(okJson("{\"object\": {\"sha\": \"" + sha + "\"}}")));
+    }
+    
+    private void stubCommitCreation() {
+        github.stubFor(get(urlEqualTo(REPO + "/git/commits/parent1")).willReturn(okJson("{\"tree\": {\"sha\": \"tree0\"}}")));
+        github.stubFor(post(urlEqualTo(REPO + "/git/trees")).willReturn(okJson("{\"sha\": \"tree1\"}")));
+        github.stubFor(post(urlEqualTo(REPO + "/git/commits")).willReturn(okJson("{\"sha\": \"commit1\"}")));
+    }
+}
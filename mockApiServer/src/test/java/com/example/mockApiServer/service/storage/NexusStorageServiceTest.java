@@ -0,0 +1,140 @@
+package com.example.mockApiServer.service.storage;
+
+import com.example.mockApiServer.config.StorageConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.notFound;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.put;
+import static com.github.tomakehurst.wiremock.client.WireMock.putRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the Nexus client against a WireMock stand-in for the repository and search endpoints
+ */
+class NexusStorageServiceTest {
+    
+    private static final String ARTIFACT = "/repository/snapshots/com/example/wiremock-snapshots/v1/wiremock-snapshots-v1.zip";
+    private static final byte[] CONTENT = "snapshot archive bytes".getBytes(StandardCharsets.UTF_8);
+    
+    private WireMockServer nexus;
+    private NexusStorageService storage;
+    
+    @BeforeEach
+    void setUp() {
+        nexus = new WireMockServer(options().dynamicPort());
+        nexus.start();
+        StorageConfig config = new StorageConfig();
+        config.getNexus().setUrl(nexus.baseUrl() + "/");
+        config.getNexus().setRepository("snapshots");
+        config.getNexus().setUsername("user");
+        config.getNexus().setPassword("secret");
+        storage = new NexusStorageService(config, new ObjectMapper());
+    }
+    
+    @AfterEach
+    void tearDown() {
+        nexus.stop();
+    }
+    
+    @Test
+    void listSnapshotsFollowsContinuationTokens() throws IOException {
+        nexus.stubFor(get(urlPathEqualTo("/service/rest/v1/search"))
+                .withQueryParam("repository", equalTo("snapshots"))
+                .withQueryParam("maven.groupId", equalTo("com.example"))
+                .withQueryParam("maven.artifactId", equalTo("wiremock-snapshots"))
+                .withQueryParam("maven.extension", equalTo("zip"))
+                .withQueryParam("continuationToken", absent())
+                .willReturn(okJson("{\"items\": [{\"version\": \"v2\"}, {\"version\": \"v1\"}], \"continuationToken\": \"page 2\"}")));
+        nexus.stubFor(get(urlPathEqualTo("/service/rest/v1/search"))
+                .withQueryParam("continuationToken", equalTo("page 2"))
+                .willReturn(okJson("{\"items\": [{\"version\": \"v3\"}, {\"version\": \"v1\"}], \"continuationToken\": null}")));
+        
+        assertEquals(List.of("v1", "v2", "v3"), storage.listSnapshots());
+        nexus.verify(2, getRequestedFor(urlPathEqualTo("/service/rest/v1/search")));
+    }
+    
+    @Test
+    void saveSnapshotStreamsTheBodyAndUploadsAMissingChecksumSidecar() throws IOException {
+        nexus.stubFor(put(urlEqualTo(ARTIFACT)).willReturn(aResponse().withStatus(201)));
+        nexus.stubFor(get(urlEqualTo(ARTIFACT + ".sha1")).willReturn(notFound()));
+        nexus.stubFor(put(urlEqualTo(ARTIFACT + ".sha1")).willReturn(aResponse().withStatus(201)));
+        
+        storage.saveSnapshot("v1", out -> out.write(CONTENT));
+        
+        nexus.verify(putRequestedFor(urlEqualTo(ARTIFACT))
+                .withHeader("Transfer-Encoding", equalTo("chunked"))
+                .withHeader("Authorization", equalTo("Basic dXNlcjpzZWNyZXQ="))
+                .withRequestBody(equalTo(new String(CONTENT, StandardCharsets.UTF_8))));
+        nexus.verify(putRequestedFor(urlEqualTo(ARTIFACT + ".sha1")).withRequestBody(equalTo(sha1(CONTENT))));
+    }
+    
+    @Test
+    void saveSnapshotFailsWhenNexusStoredDifferentContent() {
+        nexus.stubFor(put(urlEqualTo(ARTIFACT)).willReturn(aResponse().withStatus(201)));
+        nexus.stubFor(get(urlEqualTo(ARTIFACT + ".sha1")).willReturn(ok(sha1("other".getBytes(StandardCharsets.UTF_8)))));
+        
+        IOException e = assertThrows(IOException.class, () -> storage.saveSnapshot("v1", out -> out.write(CONTENT)));
+        assertTrue(e.getMessage().contains("Checksum mismatch"));
+    }
+    
+    @Test
+    void openSnapshotReturnsContentMatchingItsChecksum() throws IOException {
+        nexus.stubFor(get(urlEqualTo(ARTIFACT))
+                .willReturn(ok().withHeader("X-Checksum-Sha1", sha1(CONTENT)).withBody(CONTENT)));
+        
+        try (InputStream in = storage.openSnapshot("v1")) {
+            assertArrayEquals(CONTENT, in.readAllBytes());
+        }
+    }
+    
+    @Test
+    void openSnapshotRejectsAChecksumMismatchBeforeReturningAnyContent() {
+        nexus.stubFor(get(urlEqualTo(ARTIFACT))
+                .willReturn(ok().withHeader("X-Checksum-Sha1", sha1("other".getBytes(StandardCharsets.UTF_8)))
+                        .withBody(CONTENT)));
+        
+        IOException e = assertThrows(IOException.class, () -> storage.openSnapshot("v1"));
+        assertTrue(e.getMessage().contains("Checksum mismatch"));
+    }
+    
+    @Test
+    void openSnapshotFallsBackToTheChecksumSidecar() throws IOException {
+        nexus.stubFor(get(urlEqualTo(ARTIFACT)).willReturn(ok().withBody(CONTENT)));
+        nexus.stubFor(get(urlEqualTo(ARTIFACT + ".sha1")).willReturn(ok("bad" + sha1(CONTENT).substring(3) + "  wiremock-snapshots-v1.zip")));
+        
+        assertThrows(IOException.class, () -> storage.openSnapshot("v1"));
+    }
+    
+    private static String sha1(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.DataTruncationSettings;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.common.SingleRootFileSource;
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.store.files.FileSourceBlobStore;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The journal keeps only the head of each response body, except for exchanges a recording captures
+ */
+class BoundedRequestJournalStoreTest {
+    
+    private static final int MAX_LOGGED_BODY_BYTES = 1024;
+    
+    @TempDir
+    Path rootDir;
+    
+    private WireMockServer server;
+    
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+    
+    @Test
+    void mappedBodyIsServedWholeButJournalledTruncated() throws IOException, InterruptedException {
+        byte[] body = new byte[100 * 1024];
+        Arrays.fill(body, (byte) 'x');
+        Files.createDirectories(rootDir.resolve("mappings"));
+        Files.createDirectories(rootDir.resolve("__files"));
+        Files.write(rootDir.resolve("__files").resolve("large.bin"), body);
+        // Wired like WireMockConfig, with bodies above 1 kB served from mapped files
+        FileSource root = new SingleRootFileSource(rootDir.toString());
+        MappedBodyStore bodyStore = new MappedBodyStore(new FileSourceBlobStore(root.child("__files")),
+                rootDir.resolve("__files"), 1024);
+        BoundedRequestJournalStore journal = journal();
+        server = new WireMockServer(options().dynamicPort()
+                .usingFilesUnderDirectory(rootDir.toString())
+                .withStores(new MockServerStores(root, new SwappableStubMappingStore(bodyStore, true, "X-Snapshot-Set"),
+                        bodyStore, journal)));
+        server.start();
+        server.stubFor(WireMock.get("/large").willReturn(WireMock.aResponse().withBodyFile("large.bin")));
+        
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(server.baseUrl() + "/large")).build(), HttpResponse.BodyHandlers.ofByteArray());
+        
+        assertArrayEquals(body, response.body());
+        List<ServeEvent> journalled = server.getAllServeEvents();
+        assertEquals(1, journalled.size());
+        assertEquals(MAX_LOGGED_BODY_BYTES, journalled.get(0).getResponse().getBody().length);
+        assertEquals(200, journalled.get(0).getResponse().getStatus());
+    }
+    
+    @Test
+    void exchangesCapturedByARecordingKeepTheirWholeBody() {
+        BoundedRequestJournalStore journal = journal();
+        StubMapping proxy = WireMock.proxyAllTo("http://target.example").build();
+        StubMapping other = WireMock.get("/other").willReturn(WireMock.ok()).build();
+        journal.suspendLimits(proxy.getId(), new RecordingFilter(List.of(), List.of(), List.of(), List.of(), List.of(),
+                List.of(), new SimpleMeterRegistry()));
+        
+        ServeEvent proxied = journalled(journal, "/proxied", proxy);
+        ServeEvent stubbed = journalled(journal, "/other", other);
+        
+        assertEquals(4096, journal.get(proxied.getId()).orElseThrow().getResponse().getBody().length);
+        assertEquals(MAX_LOGGED_BODY_BYTES, journal.get(stubbed.getId()).orElseThrow().getResponse().getBody().length);
+    }
+    
+    private static BoundedRequestJournalStore journal() {
+        return new BoundedRequestJournalStore(BoundedRequestJournalStore.Policy.RING, 100, 0, MAX_LOGGED_BODY_BYTES,
+                new SimpleMeterRegistry());
+    }
+    
+    /**
+     * Journal an event the way WireMock does: once when matched, again when its response completes
+     */
+    private static ServeEvent journalled(BoundedRequestJournalStore journal, String url, StubMapping stub) {
+        ServeEvent matched = ServeEvent.of(LoggedRequest.createFrom(ImmutableRequest.create()
+                        .withAbsoluteUrl("http://localhost:8080" + url)
+                        .withMethod(RequestMethod.GET)
+                        .build()))
+                .withStubMapping(stub)
+                .withResponseDefinition(ResponseDefinitionBuilder.okForEmptyJson().build());
+        journal.add(matched);
+        ServeEvent completed = matched.complete(Response.response().status(200).body(new byte[4096]).build(),
+                DataTruncationSettings.NO_TRUNCATION);
+        journal.put(completed.getId(), completed);
+        return completed;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.common.SingleRootFileSource;
+import com.github.tomakehurst.wiremock.common.filemaker.FilenameMaker;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistOnlyMappingsSourceTest {
+    
+    private static final String STUB = """
+            {"id": "%s", "persistent": true,
+             "request": {"method": "GET", "url": "/x"},
+             "response": {"status": 200, "body": "%s"}}""";
+    
+    @TempDir
+    Path mappingsDir;
+    
+    private PersistOnlyMappingsSource source;
+    
+    @BeforeEach
+    void setUp() {
+        source = new PersistOnlyMappingsSource(new SingleRootFileSource(mappingsDir.toString()), new FilenameMaker());
+    }
+    
+    @Test
+    void importingALoadedStubDoesNotWriteItBack() throws IOException {
+        Path file = write("orig-name.json", "6b1b5f1e-0000-0000-0000-000000000001", "one");
+        String content = Files.readString(file);
+        StubMapping stub = load(file);
+        
+        source.save(stub);
+        
+        assertEquals(List.of("orig-name.json"), fileNames());
+        assertEquals(content, Files.readString(file));
+    }
+    
+    @Test
+    void editingALoadedStubOverwritesItsOriginalFile() throws IOException {
+        Path file = write("orig-name.json", "6b1b5f1e-0000-0000-0000-000000000001", "one");
+        load(file);
+        
+        source.save(StubMapping.buildFrom(STUB.formatted("6b1b5f1e-0000-0000-0000-000000000001", "two")));
+        
+        assertEquals(List.of("orig-name.json"), fileNames());
+        assertTrue(Files.readString(file).contains("two"));
+    }
+    
+    @Test
+    void removingALoadedStubDeletesItsFile() throws IOException {
+        Path file = write("orig-name.json", "6b1b5f1e-0000-0000-0000-000000000001", "one");
+        StubMapping stub = load(file);
+        
+        source.remove(stub);
+        
+        assertFalse(Files.exists(file));
+    }
+    
+    @Test
+    void removingAnUnknownStubIsANoOp() {
+        source.remove(StubMapping.buildFrom(STUB.formatted("6b1b5f1e-0000-0000-0000-000000000009", "one")));
+    }
+    
+    @Test
+    void removeAllDeletesLoadedAndSavedFiles() throws IOException {
+        load(write("orig-name.json", "6b1b5f1e-0000-0000-0000-000000000001", "one"));
+        source.save(StubMapping.buildFrom(STUB.formatted("6b1b5f1e-0000-0000-0000-000000000002", "two")));
+        assertEquals(2, fileNames().size());
+        
+        source.removeAll();
+        
+        assertEquals(List.of(), fileNames());
+    }
+    
+    @Test
+    void fileRewrittenWithAnotherStubIsNotDeletedWithTheOldStub() throws IOException {
+        Path file = write("shared.json", "6b1b5f1e-0000-0000-0000-000000000001", "one");
+        StubMapping old = load(file);
+        // A restore put a different stub into the same file
+        write("shared.json", "6b1b5f1e-0000-0000-0000-000000000002", "two");
+        load(file);
+        
+        source.remove(old);
+        
+        assertTrue(Files.exists(file));
+    }
+    
+    private StubMapping load(Path file) throws IOException {
+        StubMapping stub = StubMapping.buildFrom(Files.readString(file));
+        source.loadedFrom(stub, file);
+        return stub;
+    }
+    
+    private Path write(String name, String id, String body) throws IOException {
+        return Files.writeString(mappingsDir.resolve(name), STUB.formatted(id, body));
+    }
+    
+    private List<String> fileNames() throws IOException {
+        try (Stream<Path> files = Files.list(mappingsDir)) {
+            return files.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+}
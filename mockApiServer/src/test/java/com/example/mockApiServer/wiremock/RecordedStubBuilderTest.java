@@ -0,0 +1,171 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.DataTruncationSettings;
+import com.github.tomakehurst.wiremock.common.SingleRootFileSource;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.HttpHeaders;
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.store.files.FileSourceBlobStore;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Repeated identical responses collapse into one stub; a request only becomes a scenario when its responses change
+ */
+class RecordedStubBuilderTest {
+    
+    @TempDir
+    Path dir;
+    
+    private WireMockServer server;
+    private RecordedStubBuilder builder;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        // Never started: recorded stubs are registered and persisted through the admin API only
+        Files.createDirectories(dir.resolve("mappings"));
+        server = new WireMockServer(options().dynamicPort().usingFilesUnderDirectory(dir.toString()));
+        builder = new RecordedStubBuilder(new MappedBodyStore(
+                new FileSourceBlobStore(new SingleRootFileSource(dir.resolve("__files").toString())),
+                dir.resolve("__files"), Long.MAX_VALUE));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        server.shutdown();
+    }
+    
+    @Test
+    void identicalResponsesCollapseIntoOneStub() throws IOException {
+        RecordedStubBuilder.Result result = build(
+                exchange("/api/users", 200, "users"),
+                exchange("/api/users", 200, "users"),
+                exchange("/api/users", 200, "users"));
+        
+        assertEquals(3, result.exchanges());
+        assertEquals(1, result.mappingsCreated());
+        assertEquals(2.0 / 3, result.dedupRatio(), 1e-9);
+        StubMapping stub = recorded().get(0);
+        assertFalse(stub.isInScenario());
+        assertEquals("users", body(stub));
+    }
+    
+    @Test
+    void changingResponsesBecomeOneScenarioStatePerRun() throws IOException {
+        RecordedStubBuilder.Result result = build(
+                exchange("/api/status", 200, "pending"),
+                exchange("/api/status", 200, "pending"),
+                exchange("/api/status", 200, "running"),
+                exchange("/api/status", 200, "done"),
+                exchange("/api/status", 200, "done"));
+        
+        assertEquals(5, result.exchanges());
+        assertEquals(3, result.mappingsCreated());
+        List<StubMapping> stubs = recorded();
+        String scenario = stubs.get(0).getScenarioName();
+        assertEquals(List.of("pending", "running", "done"), stubs.stream().map(RecordedStubBuilderTest::body).toList());
+        assertEquals(List.of(Scenario.STARTED, scenario + "-2", scenario + "-3"),
+                stubs.stream().map(StubMapping::getRequiredScenarioState).toList());
+        assertEquals(scenario + "-2", stubs.get(0).getNewScenarioState());
+        assertEquals(scenario + "-3", stubs.get(1).getNewScenarioState());
+        // The last recorded response keeps answering
+        assertNull(stubs.get(2).getNewScenarioState());
+    }
+    
+    @Test
+    void aResponseThatComesBackIsANewRun() throws IOException {
+        RecordedStubBuilder.Result result = build(
+                exchange("/api/toggle", 200, "on"),
+                exchange("/api/toggle", 200, "off"),
+                exchange("/api/toggle", 200, "on"));
+        
+        assertEquals(3, result.mappingsCreated());
+        List<StubMapping> stubs = recorded();
+        String scenario = stubs.get(0).getScenarioName();
+        assertEquals(List.of("on", "off", "on"), stubs.stream().map(RecordedStubBuilderTest::body).toList());
+        assertEquals(Arrays.asList(scenario + "-2", scenario + "-3", null),
+                stubs.stream().map(StubMapping::getNewScenarioState).toList());
+    }
+    
+    @Test
+    void statusAndContentTypeChangesCountAsNewResponses() throws IOException {
+        build(exchange("/api/a", 200, "same"),
+                exchange("/api/a", 503, "same"),
+                exchange("/api/b", 200, "same", "application/json"),
+                exchange("/api/b", 200, "same", "text/plain"));
+        
+        List<StubMapping> stubs = recorded();
+        assertEquals(4, stubs.size());
+        assertEquals(2, stubs.stream().map(StubMapping::getScenarioName).distinct().count());
+    }
+    
+    @Test
+    void requestsAreDeduplicatedIndependently() throws IOException {
+        RecordedStubBuilder.Result result = build(
+                exchange("/api/users", 200, "users"),
+                exchange("/api/status", 200, "pending"),
+                exchange("/api/users", 200, "users"),
+                exchange("/api/status", 200, "done"),
+                exchange("/api/users", 200, "users"));
+        
+        assertEquals(3, result.mappingsCreated());
+        List<StubMapping> users = recorded().stream().filter(stub -> stub.getRequest().getUrl().equals("/api/users")).toList();
+        assertEquals(1, users.size());
+        assertFalse(users.get(0).isInScenario());
+    }
+    
+    private RecordedStubBuilder.Result build(ServeEvent... exchanges) throws IOException {
+        return builder.build(List.of(exchanges)::forEach, server);
+    }
+    
+    /**
+     * Recorded stubs in the order they were created
+     */
+    private List<StubMapping> recorded() {
+        return server.getStubMappings().stream()
+                .sorted(Comparator.comparingLong(StubMapping::getInsertionIndex))
+                .toList();
+    }
+    
+    private static String body(StubMapping stub) {
+        // Recorded without a text content type, so the body is kept as base64
+        return new String(stub.getResponse().getByteBody(), StandardCharsets.UTF_8);
+    }
+    
+    private static ServeEvent exchange(String url, int status, String body) {
+        return exchange(url, status, body, null);
+    }
+    
+    private static ServeEvent exchange(String url, int status, String body, String contentType) {
+        HttpHeaders headers = contentType != null ? new HttpHeaders(new HttpHeader("Content-Type", contentType)) : HttpHeaders.noHeaders();
+        return ServeEvent.of(LoggedRequest.createFrom(ImmutableRequest.create()
+                        .withAbsoluteUrl("http://localhost:8080" + url)
+                        .withMethod(RequestMethod.GET)
+                        .build()))
+                .withResponseDefinition(ResponseDefinitionBuilder.responseDefinition().proxiedFrom("http://target.example").build())
+                .complete(Response.response().status(status).headers(headers).body(body).build(), DataTruncationSettings.NO_TRUNCATION);
+    }
+}
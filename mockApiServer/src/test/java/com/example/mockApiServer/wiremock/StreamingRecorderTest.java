@@ -0,0 +1,182 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.DataTruncationSettings;
+import com.github.tomakehurst.wiremock.common.SingleRootFileSource;
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.store.files.FileSourceBlobStore;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A streaming recording interrupted by a crash is finalized by the next process from the log it left behind
+ */
+class StreamingRecorderTest {
+    
+    private static final String TARGET = "http://target.example";
+    private static final String OTHER_TARGET = "http://other.example";
+    
+    @TempDir
+    Path dir;
+    
+    private Path logFile;
+    private WireMockServer crashedServer;
+    private WireMockServer restartedServer;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        logFile = dir.resolve("recording").resolve("exchanges.jsonl");
+        crashedServer = server("crashed");
+        restartedServer = server("restarted");
+    }
+    
+    @AfterEach
+    void tearDown() {
+        crashedServer.shutdown();
+        restartedServer.shutdown();
+    }
+    
+    @Test
+    void leftoverLogIsFinalizedByTheNextStop() throws IOException {
+        StreamingRecorder crashed = recorder();
+        crashed.start(crashedServer, TARGET);
+        crashed.afterComplete(exchange("/api/users", "users", proxyStub(crashedServer)), null);
+        crashed.afterComplete(exchange("/api/orders", "orders", proxyStub(crashedServer)), null);
+        // The process dies here, mid-write of a third exchange
+        Files.writeString(logFile, "{\"request\": {\"url\": \"/api/par", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        
+        StreamingRecorder restarted = recorder();
+        assertFalse(restarted.isRecording());
+        assertTrue(restarted.hasPendingExchanges());
+        
+        RecordedStubBuilder.Result result = restarted.stop(restartedServer);
+        
+        assertEquals(2, result.exchanges());
+        assertEquals(List.of("/api/orders", "/api/users"), recordedUrls(restartedServer));
+        assertFalse(Files.exists(logFile));
+        assertFalse(restarted.hasPendingExchanges());
+    }
+    
+    @Test
+    void recordingAgainAfterACrashKeepsTheLeftoverExchanges() throws IOException {
+        StreamingRecorder crashed = recorder();
+        crashed.start(crashedServer, TARGET);
+        crashed.afterComplete(exchange("/api/users", "users", proxyStub(crashedServer)), null);
+        
+        StreamingRecorder restarted = recorder();
+        restarted.start(restartedServer, TARGET);
+        restarted.afterComplete(exchange("/api/orders", "orders", proxyStub(restartedServer)), null);
+        RecordedStubBuilder.Result result = restarted.stop(restartedServer);
+        
+        assertEquals(2, result.exchanges());
+        assertEquals(List.of("/api/orders", "/api/users"), recordedUrls(restartedServer));
+    }
+    
+    @Test
+    void stopWithoutALogRecordsNothing() throws IOException {
+        StreamingRecorder recorder = recorder();
+        
+        assertFalse(recorder.hasPendingExchanges());
+        assertEquals(0, recorder.stop(restartedServer).exchanges());
+        assertEquals(List.of(), recordedUrls(restartedServer));
+    }
+    
+    @Test
+    void onlyProxiedExchangesAreLogged() throws IOException {
+        StreamingRecorder recorder = recorder();
+        recorder.start(crashedServer, TARGET);
+        ServeEvent stubbed = ServeEvent.of(request("/api/local"))
+                .withResponseDefinition(ResponseDefinitionBuilder.okForEmptyJson().build())
+                .complete(Response.response().status(200).build(), DataTruncationSettings.NO_TRUNCATION);
+        recorder.afterComplete(stubbed, null);
+        recorder.afterComplete(exchange("/api/users", "users", proxyStub(crashedServer)), null);
+        
+        assertEquals(1, recorder.getExchangesRecorded());
+        assertEquals(1, Files.readAllLines(logFile).size());
+    }
+    
+    @Test
+    void exchangesProxiedByOtherStubsAreNotLogged() throws IOException {
+        StreamingRecorder recorder = recorder();
+        recorder.start(crashedServer, TARGET);
+        StubMapping recordingProxy = proxyStub(crashedServer);
+        // A proxy stub of the loaded mappings, forwarding one path elsewhere
+        StubMapping otherProxy = WireMock.get("/api/legacy").willReturn(WireMock.aResponse().proxiedFrom(OTHER_TARGET)).build();
+        crashedServer.addStubMapping(otherProxy);
+        
+        recorder.afterComplete(exchange("/api/legacy", "legacy", otherProxy), null);
+        recorder.afterComplete(exchange("/api/users", "users", recordingProxy), null);
+        RecordedStubBuilder.Result result = recorder.stop(crashedServer);
+        
+        assertEquals(1, result.exchanges());
+        assertEquals(List.of("/api/users"), recordedUrls(crashedServer));
+    }
+    
+    private StreamingRecorder recorder() {
+        MappedBodyStore bodyStore = new MappedBodyStore(
+                new FileSourceBlobStore(new SingleRootFileSource(dir.resolve("files").toString())), dir.resolve("files"), Long.MAX_VALUE);
+        RecordingFilter filter = new RecordingFilter(List.of(), List.of(), List.of(), List.of(), List.of(), List.of(),
+                new SimpleMeterRegistry());
+        return new StreamingRecorder(logFile, new RecordedStubBuilder(bodyStore), filter);
+    }
+    
+    private WireMockServer server(String name) throws IOException {
+        // Never started: recorded stubs are registered and persisted through the admin API only
+        Files.createDirectories(dir.resolve(name).resolve("mappings"));
+        return new WireMockServer(options().dynamicPort().usingFilesUnderDirectory(dir.resolve(name).toString()));
+    }
+    
+    private static List<String> recordedUrls(WireMockServer server) {
+        return server.getStubMappings().stream()
+                .filter(stub -> Boolean.TRUE.equals(stub.isPersistent()))
+                .map(stub -> stub.getRequest().getUrl())
+                .sorted()
+                .toList();
+    }
+    
+    /**
+     * The proxy stub a started recorder added to the server
+     */
+    private static StubMapping proxyStub(WireMockServer server) {
+        return server.getStubMappings().stream()
+                .filter(stub -> stub.getResponse().isProxyResponse())
+                .findFirst()
+                .orElseThrow();
+    }
+    
+    private static ServeEvent exchange(String url, String body, StubMapping proxy) {
+        return ServeEvent.of(request(url))
+                .withStubMapping(proxy)
+                .withResponseDefinition(ResponseDefinitionBuilder.responseDefinition().proxiedFrom(proxy.getResponse().getProxyBaseUrl()).build())
+                .complete(Response.response().status(200).body(body).build(), DataTruncationSettings.NO_TRUNCATION);
+    }
+    
+    private static LoggedRequest request(String url) {
+        return LoggedRequest.createFrom(ImmutableRequest.create()
+                .withAbsoluteUrl("http://localhost:8080" + url)
+                .withMethod(RequestMethod.GET)
+                .build());
+    }
+}
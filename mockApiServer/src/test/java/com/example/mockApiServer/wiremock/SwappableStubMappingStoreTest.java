@@ -0,0 +1,163 @@
+package com.example.mockApiServer.wiremock;
+
+import com.github.tomakehurst.wiremock.common.SingleRootFileSource;
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.store.files.FileSourceBlobStore;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Indexed matching must return exactly what WireMock's own scan returns, in the same order
+ */
+class SwappableStubMappingStoreTest {
+    
+    // Covers every kind of URL pattern the index derives a prefix from, partial trailing segments,
+    // regexes it has to give up on, and stubs whose priorities tie across method buckets
+    private static final List<String> STUBS = List.of(
+            stub(1, "GET", "\"url\": \"/api/users\""),
+            stub(2, "GET", "\"url\": \"/api/users?page=2\""),
+            stub(3, "GET", "\"urlPath\": \"/api/users\", \"queryParameters\": {\"page\": {\"equalTo\": \"2\"}}"),
+            stub(4, "GET", "\"urlPattern\": \"/api/users/[0-9]+\""),
+            stub(5, "ANY", "\"urlPathPattern\": \"^/api/us.*\""),
+            stub(6, "GET", "\"urlPathTemplate\": \"/api/users/{id}\""),
+            stub(7, "GET", "\"urlPattern\": \"/(api|v2)/.*\""),
+            stub(8, "GET", "\"urlPath\": \"/api/user\""),
+            stub(9, "DELETE", "\"urlPathPattern\": \"/api/use[rs]+/.*\""),
+            stub(10, "POST", null),
+            stub(11, "ANY", "\"url\": \"/api/users\"", 1),
+            stub(12, "GET", "\"urlPath\": \"/api/users\"", 10),
+            stub(13, "GET", "\"urlPathTemplate\": \"/api/{version}/users\""),
+            stub(14, "ANY", "\"urlPath\": \"/api/users\""),
+            stub(15, "GET", "\"url\": \"/api/users\""));
+    
+    private static final List<Request> REQUESTS = List.of(
+            request(RequestMethod.GET, "/api/users"),
+            request(RequestMethod.GET, "/api/users?page=2"),
+            request(RequestMethod.GET, "/api/users?page=3"),
+            request(RequestMethod.GET, "/api/users/42"),
+            request(RequestMethod.GET, "/api/users/abc"),
+            request(RequestMethod.DELETE, "/api/users/42"),
+            request(RequestMethod.POST, "/api/users"),
+            request(RequestMethod.PUT, "/api/users"),
+            request(RequestMethod.GET, "/api/user"),
+            request(RequestMethod.GET, "/api/usersx"),
+            request(RequestMethod.GET, "/api/v1/users"),
+            request(RequestMethod.GET, "/v2/users"),
+            request(RequestMethod.GET, "/"),
+            request(RequestMethod.OPTIONS, "/other"));
+    
+    @TempDir
+    Path filesDir;
+    
+    private SwappableStubMappingStore indexed;
+    private SwappableStubMappingStore unindexed;
+    
+    @BeforeEach
+    void setUp() {
+        indexed = store(true);
+        unindexed = store(false);
+        // Each store numbers the stubs it is given, so each gets its own instances in the same order
+        STUBS.forEach(json -> indexed.add(StubMapping.buildFrom(json)));
+        STUBS.forEach(json -> unindexed.add(StubMapping.buildFrom(json)));
+    }
+    
+    @Test
+    void indexedMatchingReturnsTheSameStubsInTheSameOrder() {
+        for (Request request : REQUESTS) {
+            assertEquals(matches(unindexed, request), matches(indexed, request),
+                    request.getMethod() + " " + request.getUrl());
+        }
+        assertFalse(matches(indexed, request(RequestMethod.GET, "/api/users")).isEmpty());
+    }
+    
+    @Test
+    void indexedMatchingFollowsEditsAndRemovals() {
+        for (SwappableStubMappingStore store : List.of(indexed, unindexed)) {
+            StubMapping existing = store.get(id(4)).orElseThrow();
+            StubMapping edited = StubMapping.buildFrom(stub(4, "GET", "\"urlPathPattern\": \"/api/.*\""));
+            // As WireMock edits a stub: the replacement keeps the existing stub's position
+            edited.setInsertionIndex(existing.getInsertionIndex());
+            store.replace(existing, edited);
+            store.remove(store.get(id(11)).orElseThrow());
+            store.add(StubMapping.buildFrom(stub(16, "ANY", "\"urlPathTemplate\": \"/api/users/{id}\"")));
+        }
+        
+        for (Request request : REQUESTS) {
+            assertEquals(matches(unindexed, request), matches(indexed, request),
+                    request.getMethod() + " " + request.getUrl());
+        }
+    }
+    
+    @Test
+    void swappedSetIsIndexedLikeItsScan() {
+        List<String> reversed = new ArrayList<>(STUBS);
+        Collections.reverse(reversed);
+        indexed.swap(reversed.stream().map(StubMapping::buildFrom).toList());
+        unindexed.swap(reversed.stream().map(StubMapping::buildFrom).toList());
+        
+        for (Request request : REQUESTS) {
+            assertEquals(matches(unindexed, request), matches(indexed, request),
+                    request.getMethod() + " " + request.getUrl());
+        }
+    }
+    
+    @Test
+    void regexLiteralPrefixStopsBeforeAnythingOptional() {
+        assertEquals("/api/users/", StubRequestIndex.regexLiteralPrefix("/api/users/[0-9]+"));
+        assertEquals("/api/us", StubRequestIndex.regexLiteralPrefix("^/api/us.*"));
+        assertEquals("/api/user", StubRequestIndex.regexLiteralPrefix("/api/users?"));
+        assertEquals("/api/use", StubRequestIndex.regexLiteralPrefix("/api/use[rs]+/.*"));
+        assertEquals("/api", StubRequestIndex.regexLiteralPrefix("/api\\.json"));
+        assertEquals("", StubRequestIndex.regexLiteralPrefix("/(api|v2)/.*"));
+    }
+    
+    private SwappableStubMappingStore store(boolean indexedMatching) {
+        MappedBodyStore bodyStore = new MappedBodyStore(
+                new FileSourceBlobStore(new SingleRootFileSource(filesDir.toString())), filesDir, Long.MAX_VALUE);
+        return new SwappableStubMappingStore(bodyStore, indexedMatching, "X-Snapshot-Set");
+    }
+    
+    private static List<UUID> matches(SwappableStubMappingStore store, Request request) {
+        return store.findAllMatchingRequest(request, Map.of(), subEvent -> { })
+                .map(StubMapping::getId)
+                .toList();
+    }
+    
+    private static String stub(int number, String method, String url) {
+        return stub(number, method, url, null);
+    }
+    
+    private static String stub(int number, String method, String url, Integer priority) {
+        return "{\"id\": \"" + id(number) + "\", "
+                + "\"request\": {\"method\": \"" + method + "\"" + (url != null ? ", " + url : "") + "}, "
+                + "\"response\": {\"status\": 200}"
+                + (priority != null ? ", \"priority\": " + priority : "") + "}";
+    }
+    
+    private static UUID id(int number) {
+        return UUID.fromString(String.format("00000000-0000-0000-0000-%012d", number));
+    }
+    
+    private static Request request(RequestMethod method, String url) {
+        // A logged request parses the query string the way a served request does
+        return LoggedRequest.createFrom(ImmutableRequest.create()
+                .withAbsoluteUrl("http://localhost:8080" + url)
+                .withMethod(method)
+                .build());
+    }
+}